@@ -0,0 +1,274 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.check;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.isNull;
+
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.model.PcmFormat;
+
+/**
+ * In-process audio decoder built on the Panama bindings.
+ * Demuxes the first audio stream with {@code av_read_frame}, decodes it with
+ * {@code avcodec_send_packet}/{@code avcodec_receive_frame} and converts every frame to the
+ * requested {@link PcmFormat} with a {@link Resampler}, so PCM reaches Java without an ffmpeg process
+ * or a pipe. Output buffers and the returned {@link PcmChunk} are reused, so a chunk is only valid
+ * until the next {@link #read()}; the packet, frame and resampler come from the opening thread's
+ * {@link NativeObjectPool}, so decoding a file allocates nothing natively beyond the contexts, and
+ * on the Java heap only when the decoded chunk length changes (see {@link Resampler}).
+ * A decoder is not thread-safe; use it from one thread at a time and close it when done.
+ *
+ * <pre>{@code
+ * try (AudioDecoder decoder = AudioDecoder.open("speech.mp3", new PcmFormat(SampleFormat.FLT, 16000, 1))) {
+ *     PcmChunk chunk;
+ *     while ((chunk = decoder.read()) != null) {
+ *         features.accept(chunk.data(), chunk.samples(), chunk.startSample());
+ *     }
+ * }
+ * }</pre>
+ */
+public final class AudioDecoder implements AutoCloseable {
+
+    private final String path;
+    private final JavaAvioSource source;
+    private final boolean ownsSource;
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment formatHolder = arena.allocate(C_POINTER);
+    private final MemorySegment codecHolder = arena.allocate(C_POINTER);
+    private final NativeObjectPool pool = NativeObjectPool.current();
+
+    private MemorySegment formatCtx = MemorySegment.NULL;
+    private MemorySegment codecCtx = MemorySegment.NULL;
+    private MemorySegment packet = MemorySegment.NULL;
+    private MemorySegment frame = MemorySegment.NULL;
+    private int streamIndex;
+    private int timeBaseNum;
+    private int timeBaseDen;
+
+    private PcmFormat outputFormat;
+    private Resampler resampler;
+
+    private boolean finished;
+    private boolean closed;
+
+    private AudioDecoder(String path, JavaAvioSource source, boolean ownsSource) {
+        this.path = path;
+        this.source = source;
+        this.ownsSource = ownsSource;
+    }
+
+    /**
+     * Opens the first audio stream of a file for decoding.
+     *
+     * @param path the input file
+     * @param target the PCM layout to produce; zero rate or channels keep the source's
+     * @return an open decoder positioned at the start of the stream
+     * @throws IllegalArgumentException if path or target is null
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException if the native libraries are not loaded
+     * @throws ExecutionException if the file cannot be opened or has no decodable audio
+     */
+    public static AudioDecoder open(String path, PcmFormat target) {
+        if (path == null) {
+            throw new IllegalArgumentException("Input path cannot be null.");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Target format cannot be null.");
+        }
+        NativeSupport.requireNative("in-process decoding");
+        String resolved = new File(path).getAbsolutePath();
+        if (FFmpeg.isMappedInput() && Files.isRegularFile(Path.of(resolved))) {
+            return start(new AudioDecoder(resolved, JavaAvioSource.map(Path.of(resolved)), true), target);
+        }
+        return start(new AudioDecoder(resolved, null, false), target);
+    }
+
+    /**
+     * Opens the first audio stream of input supplied through a {@link JavaAvioSource}, e.g. an
+     * upload held in memory. The source must stay open until the decoder is closed.
+     *
+     * @throws IllegalArgumentException if source or target is null
+     * @throws ExecutionException if the input cannot be opened or has no decodable audio
+     */
+    public static AudioDecoder open(JavaAvioSource source, PcmFormat target) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source cannot be null.");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Target format cannot be null.");
+        }
+        return start(new AudioDecoder(source.toString(), source, false), target);
+    }
+
+    private static AudioDecoder start(AudioDecoder decoder, PcmFormat target) {
+        try {
+            decoder.init(target);
+        } catch (RuntimeException e) {
+            decoder.close();
+            throw e;
+        }
+        return decoder;
+    }
+
+    private void init(PcmFormat target) {
+        int opened = (source != null)
+            ? source.openInput(formatHolder)
+            : avformat_open_input(formatHolder, arena.allocateFrom(path), MemorySegment.NULL, MemorySegment.NULL);
+        check(opened, "avformat_open_input", path);
+        formatCtx = formatHolder.get(C_POINTER, 0);
+        check(avformat_find_stream_info(formatCtx, MemorySegment.NULL), "avformat_find_stream_info", path);
+
+        MemorySegment decoderHolder = arena.allocate(C_POINTER);
+        streamIndex = check(av_find_best_stream(formatCtx, AVMEDIA_TYPE_AUDIO(), -1, -1, decoderHolder, 0),
+            "av_find_best_stream", path);
+        MemorySegment decoder = decoderHolder.get(C_POINTER, 0);
+
+        // Only the audio stream is demuxed from here on.
+        MemorySegment streams = AVFormatContext.streams(formatCtx);
+        for (int i = 0; i < AVFormatContext.nb_streams(formatCtx); i++) {
+            if (i != streamIndex) AVStream.discard(streams.getAtIndex(C_POINTER, i), AVDISCARD_ALL());
+        }
+        MemorySegment stream = streams.getAtIndex(C_POINTER, streamIndex);
+        MemorySegment timeBase = AVStream.time_base(stream);
+        timeBaseNum = AVRational.num(timeBase);
+        timeBaseDen = AVRational.den(timeBase);
+
+        codecCtx = avcodec_alloc_context3(decoder);
+        if (isNull(codecCtx)) {
+            throw new ExecutionException(-1, "avcodec_alloc_context3 failed for: " + path);
+        }
+        codecHolder.set(C_POINTER, 0, codecCtx);
+        check(avcodec_parameters_to_context(codecCtx, AVStream.codecpar(stream)), "avcodec_parameters_to_context", path);
+        check(avcodec_open2(codecCtx, decoder, MemorySegment.NULL), "avcodec_open2", path);
+
+        packet = pool.packet();
+        frame = pool.frame();
+
+        int sourceRate = AVCodecContext.sample_rate(codecCtx);
+        int sourceChannels = AVChannelLayout.nb_channels(AVCodecContext.ch_layout(codecCtx));
+        outputFormat = new PcmFormat(target.sampleFormat(),
+            target.sampleRate() > 0 ? target.sampleRate() : sourceRate,
+            target.channels() > 0 ? target.channels() : sourceChannels);
+        if (outputFormat.sampleRate() <= 0 || outputFormat.channels() <= 0) {
+            throw new ExecutionException(-1, "Cannot determine sample rate or channel count for: " + path);
+        }
+    }
+
+    /**
+     * The layout of the chunks this decoder produces, with the source rate and channel count
+     * filled in where the target left them at zero.
+     */
+    public PcmFormat outputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * The input's global metadata dictionary ({@code AVFormatContext.metadata}), owned by the decoder.
+     */
+    MemorySegment inputMetadata() {
+        return AVFormatContext.metadata(formatCtx);
+    }
+
+    /**
+     * Duration of the input as reported by the container, or 0 if unknown.
+     */
+    public double durationSeconds() {
+        long duration = AVFormatContext.duration(formatCtx);
+        return (duration == AV_NOPTS_VALUE() || duration < 0) ? 0.0 : duration / (double) AV_TIME_BASE();
+    }
+
+    /**
+     * Decodes the next chunk of PCM.
+     *
+     * @return the next chunk, or null once the stream and the resampler are fully drained
+     * @throws ExecutionException if demuxing or decoding fails
+     */
+    public PcmChunk read() {
+        if (closed) {
+            throw new IllegalStateException("Decoder is closed.");
+        }
+        while (!finished) {
+            int ret = avcodec_receive_frame(codecCtx, frame);
+            if (ret >= 0) {
+                try {
+                    PcmChunk chunk = convert();
+                    if (chunk.samples() > 0) return chunk;
+                } finally {
+                    av_frame_unref(frame);
+                }
+            } else if (ret == NativeSupport.AVERROR_EAGAIN) {
+                sendNextPacket();
+            } else if (ret == AVERROR_EOF()) {
+                finished = true;
+                if (resampler != null) {
+                    PcmChunk chunk = resampler.flush();
+                    if (chunk.samples() > 0) return chunk;
+                }
+            } else {
+                check(ret, "avcodec_receive_frame", path);
+            }
+        }
+        return null;
+    }
+
+    private void sendNextPacket() {
+        while (true) {
+            int ret = av_read_frame(formatCtx, packet);
+            if (ret == AVERROR_EOF()) {
+                // A null packet puts the decoder into draining mode.
+                check(avcodec_send_packet(codecCtx, MemorySegment.NULL), "avcodec_send_packet", path);
+                return;
+            }
+            check(ret, "av_read_frame", path);
+            try {
+                if (AVPacket.stream_index(packet) == streamIndex) {
+                    check(avcodec_send_packet(codecCtx, packet), "avcodec_send_packet", path);
+                    return;
+                }
+            } finally {
+                av_packet_unref(packet);
+            }
+        }
+    }
+
+    /**
+     * The resampler is configured from the first decoded frame, whose parameters are
+     * authoritative even for decoders that only learn them from the bitstream.
+     */
+    private PcmChunk convert() {
+        if (resampler == null) {
+            resampler = Resampler.forFrames(AVFrame.ch_layout(frame), AVFrame.format(frame), AVFrame.sample_rate(frame),
+                outputFormat, path);
+            resampler.setNextSample(firstSample());
+        }
+        return resampler.convertPointers(AVFrame.extended_data(frame), AVFrame.nb_samples(frame));
+    }
+
+    /** Position of the first decoded sample on the output timeline, from the frame's timestamp. */
+    private long firstSample() {
+        long pts = AVFrame.best_effort_timestamp(frame);
+        if (pts == AV_NOPTS_VALUE() || timeBaseDen == 0) return 0;
+        return Math.round(pts * (double) timeBaseNum / timeBaseDen * outputFormat.sampleRate());
+    }
+
+    /**
+     * Releases every native resource held by the decoder. Chunks returned earlier become invalid.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (resampler != null) resampler.close();
+        pool.release(frame);
+        pool.release(packet);
+        if (!isNull(codecCtx)) avcodec_free_context(codecHolder);
+        if (!isNull(formatCtx)) avformat_close_input(formatHolder);
+        if (ownsSource) source.close();
+        arena.close();
+    }
+}
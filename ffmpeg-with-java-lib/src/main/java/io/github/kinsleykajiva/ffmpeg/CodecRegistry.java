@@ -0,0 +1,183 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.isNull;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import io.github.kinsleykajiva.ffmpeg.exception.CodecException;
+import io.github.kinsleykajiva.ffmpeg.model.AudioCodec;
+import io.github.kinsleykajiva.ffmpeg.model.EncoderInfo;
+import io.github.kinsleykajiva.ffmpeg.model.SampleFormat;
+
+/**
+ * The audio encoders available in the FFmpeg build, so that jobs asking for a missing encoder,
+ * or a sample rate or channel count the encoder cannot take, fail before an ffmpeg process is
+ * started. Built once: through {@code av_codec_iterate} and {@code avcodec_get_supported_config}
+ * when the native libraries are already loaded, otherwise from {@code ffmpeg -encoders} (names
+ * and the experimental flag only, cached by {@link FFmpegBinary#getEncoders()}). Building it never
+ * loads the native libraries, so CLI-only jobs do not pay for the library search. The native libraries and the ffmpeg binary are
+ * expected to come from the same build, as {@link FFmpegBinary#setBinPath(String)} requires.
+ */
+public final class CodecRegistry {
+
+    private static volatile CodecRegistry instance;
+
+    private final Map<String, EncoderInfo> encoders;
+    private final boolean known;
+
+    private CodecRegistry(Map<String, EncoderInfo> encoders, boolean known) {
+        this.encoders = Collections.unmodifiableMap(encoders);
+        this.known = known;
+    }
+
+    /**
+     * The registry for the current FFmpeg installation, built on first use. If neither the
+     * native libraries nor the ffmpeg binary can be queried, the registry is empty and
+     * {@link #isKnown()} is false.
+     */
+    public static CodecRegistry get() {
+        CodecRegistry registry = instance;
+        if (registry == null) {
+            synchronized (CodecRegistry.class) {
+                registry = instance;
+                if (registry == null) {
+                    registry = load();
+                    instance = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Drops the registry so the next {@link #get()} queries FFmpeg again, e.g. after
+     * {@link FFmpeg#setBinPath(String)}.
+     */
+    public static synchronized void reset() {
+        instance = null;
+    }
+
+    /** Whether the encoder list could be read; when false every lookup is answered optimistically. */
+    public boolean isKnown() {
+        return known;
+    }
+
+    public Set<String> encoderNames() {
+        return encoders.keySet();
+    }
+
+    public Optional<EncoderInfo> encoder(String name) {
+        return Optional.ofNullable(encoders.get(name));
+    }
+
+    public boolean hasEncoder(String name) {
+        return !known || encoders.containsKey(name);
+    }
+
+    /**
+     * Picks the encoder to use for {@code codec} and checks that it accepts the requested
+     * sample rate and channel count.
+     *
+     * @param sampleRate requested rate in Hz, or 0 to keep the source's
+     * @param channels requested channel count, or 0 to keep the source's
+     * @return the codec's own encoder or, if the build lacks it, the first available alternative;
+     *         unrestricted if the registry is not known
+     * @throws CodecException if no suitable encoder is available
+     */
+    public EncoderInfo select(AudioCodec codec, int sampleRate, int channels) {
+        if (!known) return EncoderInfo.named(codec.getCodecName());
+        EncoderInfo info = encoders.get(codec.getCodecName());
+        for (int i = 0; info == null && i < codec.getAlternatives().size(); i++) {
+            info = encoders.get(codec.getAlternatives().get(i));
+        }
+        if (info == null) {
+            throw new CodecException(codec.getCodecName(), "Encoder " + codec.getCodecName()
+                + (codec.getAlternatives().isEmpty() ? "" : " (or " + String.join(", ", codec.getAlternatives()) + ")")
+                + " is not available in this FFmpeg build.");
+        }
+        if (sampleRate > 0 && !info.supportsSampleRate(sampleRate)) {
+            throw new CodecException(info.name(), "Encoder " + info.name() + " does not support " + sampleRate
+                + " Hz. Supported: " + info.sampleRates());
+        }
+        if (channels > 0 && !info.supportsChannels(channels)) {
+            throw new CodecException(info.name(), "Encoder " + info.name() + " does not support " + channels
+                + " channel(s). Supported: " + info.channelCounts());
+        }
+        return info;
+    }
+
+    private static CodecRegistry load() {
+        if (NativeLibraries.isLoaded()) {
+            try {
+                return new CodecRegistry(loadNative(), true);
+            } catch (RuntimeException | LinkageError e) {
+                // fall back to the CLI listing
+            }
+        }
+        try {
+            Map<String, EncoderInfo> encoders = new LinkedHashMap<>();
+            List<String> experimental = FFmpegBinary.getExperimentalEncoders();
+            for (String name : FFmpegBinary.getEncoders()) {
+                encoders.put(name, new EncoderInfo(name, List.of(), List.of(), List.of(), experimental.contains(name)));
+            }
+            return new CodecRegistry(encoders, true);
+        } catch (RuntimeException e) {
+            return new CodecRegistry(Map.of(), false);
+        }
+    }
+
+    private static Map<String, EncoderInfo> loadNative() {
+        Map<String, EncoderInfo> encoders = new LinkedHashMap<>();
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment iterator = arena.allocate(C_POINTER);
+            MemorySegment values = arena.allocate(C_POINTER);
+            MemorySegment count = arena.allocate(C_INT);
+            MemorySegment codec;
+            while (!isNull(codec = av_codec_iterate(iterator))) {
+                if (av_codec_is_encoder(codec) == 0 || AVCodec.type(codec) != AVMEDIA_TYPE_AUDIO()) continue;
+                String name = AVCodec.name(codec).getString(0);
+                // Several codecs can share an encoder name only in broken builds; keep the first, as lookup by name does.
+                if (encoders.containsKey(name)) continue;
+
+                List<SampleFormat> formats = new ArrayList<>();
+                int n = supportedConfig(codec, AV_CODEC_CONFIG_SAMPLE_FORMAT(), values, count);
+                for (int i = 0; i < n; i++) {
+                    SampleFormat format = NativeSupport.sampleFormat(values.get(C_POINTER, 0).getAtIndex(C_INT, i));
+                    if (format != null) formats.add(format);
+                }
+                List<Integer> rates = new ArrayList<>();
+                n = supportedConfig(codec, AV_CODEC_CONFIG_SAMPLE_RATE(), values, count);
+                for (int i = 0; i < n; i++) {
+                    rates.add(values.get(C_POINTER, 0).getAtIndex(C_INT, i));
+                }
+                List<Integer> channels = new ArrayList<>();
+                n = supportedConfig(codec, AV_CODEC_CONFIG_CHANNEL_LAYOUT(), values, count);
+                for (int i = 0; i < n; i++) {
+                    int channelCount = AVChannelLayout.nb_channels(AVChannelLayout.asSlice(values.get(C_POINTER, 0), i));
+                    if (!channels.contains(channelCount)) channels.add(channelCount);
+                }
+                boolean experimental = (AVCodec.capabilities(codec) & AV_CODEC_CAP_EXPERIMENTAL()) != 0;
+                encoders.put(name, new EncoderInfo(name, formats, rates, channels, experimental));
+            }
+        }
+        return encoders;
+    }
+
+    /** Number of supported values written to {@code values}, or 0 when the encoder accepts anything. */
+    private static int supportedConfig(MemorySegment codec, int config, MemorySegment values, MemorySegment count) {
+        values.set(C_POINTER, 0, MemorySegment.NULL);
+        count.set(C_INT, 0, 0);
+        // A null context asks about the codec itself.
+        if (avcodec_get_supported_config(MemorySegment.NULL, codec, config, 0, values, count) < 0) return 0;
+        return isNull(values.get(C_POINTER, 0)) ? 0 : count.get(C_INT, 0);
+    }
+}
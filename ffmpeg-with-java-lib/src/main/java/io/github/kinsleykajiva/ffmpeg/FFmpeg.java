@@ -1,137 +1,150 @@
 package io.github.kinsleykajiva.ffmpeg;
 
-import java.io.File;
-
 /**
  * A fluent API wrapper for FFmpeg operations.
- * Metadata probing uses ffprobe CLI (cross-platform).
- * Native Panama bindings are loaded optionally for advanced use cases.
+ * Metadata probing runs in-process through the Panama bindings when the native libraries
+ * are available, and falls back to the ffprobe CLI otherwise.
  */
 public class FFmpeg {
-    static {
-        loadLibraries();
+
+    /**
+     * Returns true if the native FFmpeg libraries are loaded and Panama features can be used.
+     * The libraries are loaded on the first call (or by {@link #preloadNative()}), not when this
+     * class is initialised; if loading fails the call keeps returning false until
+     * {@link #setBinPath(String)} points somewhere else.
+     */
+    public static boolean isNativeAvailable() {
+        return NativeLibraries.ensureLoaded();
+    }
+
+    /**
+     * Starts loading the native libraries in the background, so that the first in-process call
+     * does not wait for the library search. Optional; CLI-only callers never need it.
+     */
+    public static void preloadNative() {
+        NativeLibraries.start();
     }
 
-    private static boolean librariesLoaded = false;
+    /**
+     * Programmatically sets the path to FFmpeg binaries and libraries.
+     * This must be called before any FFmpeg operations.
+     */
+    public static void setBinPath(String path) {
+        FFmpegBinary.setBinPath(path);
+        // Retry loading native libraries with the new path
+        NativeLibraries.retry();
+    }
 
-    private static void loadLibraries() {
-        if (librariesLoaded) return;
+    private static volatile ProbeCache probeCache = new ProbeCache(1024);
 
-        // Core libs for Panama-based features (optional, non-fatal)
-        String[] requiredLibs = {"avutil-60", "swresample-6", "avcodec-62", "avformat-62", "swscale-9", "avfilter-11"};
-        String[] optionalLibs = {"avdevice-62"};
+    /**
+     * Sets the cache consulted by {@link #probe()}; pass null to always probe the file.
+     * Defaults to an in-memory cache of 1024 entries.
+     */
+    public static void setProbeCache(ProbeCache cache) {
+        probeCache = cache;
+    }
 
-        File binDir = resolveFallbackBinDir();
+    public static ProbeCache getProbeCache() {
+        return probeCache;
+    }
 
-        boolean allLoaded = true;
-        for (String lib : requiredLibs) {
-            if (!loadSingleLib(lib, binDir)) {
-                allLoaded = false;
-                break;
-            }
+    /**
+     * Probes every file under {@code root} on virtual threads, at most
+     * {@link io.github.kinsleykajiva.ffmpeg.model.ProbeOptions#concurrency()} at a time.
+     * Results stream back in completion order through {@link ProbeBatch#results()}, with per-file
+     * failures captured in the result instead of thrown. The configured {@link ProbeCache} is used.
+     *
+     * @param root directory (or single file) to probe
+     * @param options concurrency, depth, file filter and the sections to read
+     * @return the running batch; close it to stop walking early
+     * @throws IllegalArgumentException if root is null or does not exist
+     */
+    public static ProbeBatch probeAll(java.nio.file.Path root, io.github.kinsleykajiva.ffmpeg.model.ProbeOptions options) {
+        if (root == null || !java.nio.file.Files.exists(root)) {
+            throw new IllegalArgumentException("Probe root does not exist: " + root);
         }
-
-        if (!allLoaded) {
-            // Non-fatal: Panama features are unavailable, but CLI-based features work fine
-            System.err.println("[FFmpeg] Native libraries not loaded. Panama features unavailable.");
-            System.err.println("[FFmpeg] CLI-based features (probe, transcode, stream) are fully operational.");
-            return;
+        if (options == null) {
+            options = io.github.kinsleykajiva.ffmpeg.model.ProbeOptions.defaults();
         }
+        io.github.kinsleykajiva.ffmpeg.model.ProbeOptions probeOptions = options;
+        return ProbeBatch.start(root, options, path -> probeFile(path, probeOptions));
+    }
 
-        // Load optional libraries (best-effort)
-        for (String lib : optionalLibs) {
-            loadSingleLib(lib, binDir);
-        }
+    private static volatile boolean headerProbing = true;
 
-        librariesLoaded = true;
+    /**
+     * Enables or disables the pure-Java {@link HeaderProber} fast path for MP3, WAV, FLAC and Ogg.
+     * When disabled every probe goes through {@link PanamaProber}. Enabled by default.
+     */
+    public static void setHeaderProbing(boolean enabled) {
+        headerProbing = enabled;
     }
 
+    private static volatile boolean mappedInput = false;
+
     /**
-     * Programmatically sets the path to FFmpeg binaries and libraries.
-     * This must be called before any FFmpeg operations.
+     * Makes {@link AudioDecoder} (and with it the in-process transcoder) read local files through
+     * a memory mapping ({@link JavaAvioSource#map(java.nio.file.Path)}) instead of file reads.
+     * Worth enabling for seek-heavy work on files that are already in the page cache. Disabled by default.
      */
-    public static void setBinPath(String path) {
-        FFmpegBinary.setBinPath(path);
-        // Retry loading native libraries with the new path
-        loadLibraries();
-    }
-
-    private static boolean loadSingleLib(String lib, java.io.File binDir) {
-        try {
-            System.loadLibrary(lib);
-            return true;
-        } catch (UnsatisfiedLinkError e1) {
-            String libFilename = FFmpegBinary.getLibraryFilename(lib);
-            
-            // If binDir is provided, use our flexible search
-            if (binDir != null && binDir.exists()) {
-                java.io.File foundLib = FFmpegBinary.findFile(binDir, libFilename);
-                if (foundLib != null) {
-                    try {
-                        System.load(foundLib.getAbsolutePath());
-                        return true;
-                    } catch (UnsatisfiedLinkError e2) {
-                        // failed to load found file
-                    }
-                }
-            }
-
-            // On Linux, also search standard system library directories
-            if (FFmpegBinary.getCurrentOS() == FFmpegBinary.OS.LINUX) {
-                String[] systemLibPaths = {
-                    "/usr/lib/x86_64-linux-gnu",
-                    "/usr/lib64",
-                    "/usr/lib",
-                    "/usr/local/lib",
-                    "/usr/local/lib64",
-                    "/usr/lib/aarch64-linux-gnu"
-                };
-                for (String path : systemLibPaths) {
-                    java.io.File sysDir = new java.io.File(path);
-                    if (sysDir.exists() && sysDir.isDirectory()) {
-                        // 1. Try exact (or prefix versioned)
-                        java.io.File foundLib = FFmpegBinary.findFile(sysDir, libFilename);
-                        
-                        // 2. Try base name fallback if exact fails
-                        if (foundLib == null && libFilename.contains(".so.")) {
-                            String baseName = libFilename.substring(0, libFilename.indexOf(".so") + 3);
-                            foundLib = FFmpegBinary.findFile(sysDir, baseName);
-                        }
-
-                        if (foundLib != null) {
-                            try {
-                                System.load(foundLib.getAbsolutePath());
-                                return true;
-                            } catch (UnsatisfiedLinkError e3) {
-                                // failed to load from system path
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+    public static void setMappedInput(boolean enabled) {
+        mappedInput = enabled;
+    }
+
+    static boolean isMappedInput() {
+        return mappedInput;
     }
 
-    private static java.io.File resolveFallbackBinDir() {
-        // 1. Check custom path if set
-        if (io.github.kinsleykajiva.ffmpeg.FFmpegBinary.getBinPath() != null) {
-            return new java.io.File(io.github.kinsleykajiva.ffmpeg.FFmpegBinary.getBinPath());
+    /**
+     * Cached results come from default probes, so they can answer any request those cover.
+     * Narrower or wider requests are probed as asked, and only default probes are stored.
+     */
+    private static io.github.kinsleykajiva.ffmpeg.model.AudioMetadata probeFile(
+            String path, io.github.kinsleykajiva.ffmpeg.model.ProbeOptions options) {
+        return probeFile(path, options, true);
+    }
+
+    /**
+     * @param loadNative whether a probe the header parser cannot answer may load the native
+     *        libraries; when false ffprobe is used unless they are already loaded
+     */
+    private static io.github.kinsleykajiva.ffmpeg.model.AudioMetadata probeFile(
+            String path, io.github.kinsleykajiva.ffmpeg.model.ProbeOptions options, boolean loadNative) {
+        ProbeCache cache = probeCache;
+        if (cache == null || !options.coveredByDefaults()) {
+            return probeUncached(path, options, loadNative);
         }
+        boolean defaultSections = options.sections().equals(
+            io.github.kinsleykajiva.ffmpeg.model.ProbeOptions.defaults().sections());
+        return cache.probe(path, p -> probeUncached(p, options, loadNative), defaultSections);
+    }
 
-        // 2. Fall back to auto-detection (searching up the tree for ffmpeg-builds)
-        try {
-            java.net.URL codeSource = FFmpeg.class.getProtectionDomain().getCodeSource().getLocation();
-            java.io.File classLocation = new java.io.File(codeSource.toURI());
-            java.io.File dir = classLocation;
-            for (int i = 0; i < 6; i++) {
-                java.io.File candidate = new java.io.File(dir, "ffmpeg-builds");
-                if (candidate.exists()) return candidate;
-                dir = dir.getParentFile();
-                if (dir == null) break;
-            }
-        } catch (Exception ignored) {}
-        return null;
+    private static io.github.kinsleykajiva.ffmpeg.model.AudioMetadata probeUncached(
+            String path, io.github.kinsleykajiva.ffmpeg.model.ProbeOptions options, boolean loadNative) {
+        // The header parser reads format, audio stream and tags in one pass; chapters and packet
+        // counts need a full prober.
+        io.github.kinsleykajiva.ffmpeg.model.AudioMetadata metadata =
+            (headerProbing && options.coveredByDefaults()) ? HeaderProber.tryProbe(path) : null;
+        if (metadata != null) return metadata;
+        return (loadNative || NativeLibraries.isLoaded())
+            ? PanamaProber.probe(path, options)
+            : FFprobeJsonProber.probe(path, options);
+    }
+
+    /**
+     * Duration of a file in seconds, for progress reporting: read from the container header,
+     * the {@link ProbeCache}, or with a format-only probe. Unlike {@link #probe()} this never
+     * loads the native libraries, so CLI-only jobs do not pay for the library search.
+     *
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.ExecutionException if probing fails
+     */
+    public static double probeDuration(String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Input path cannot be null.");
+        }
+        return probeFile(path, io.github.kinsleykajiva.ffmpeg.model.ProbeOptions.of(
+            io.github.kinsleykajiva.ffmpeg.model.ProbeOptions.Section.FORMAT_ONLY), false).durationSeconds();
     }
 
     private final String inputPath;
@@ -163,15 +176,34 @@ public class FFmpeg {
     }
 
     /**
-     * Probes the input file for metadata using ffprobe CLI (cross-platform).
+     * Probes the input file for metadata: common containers are read straight from their headers
+     * by {@link HeaderProber}; anything else is probed in-process via {@link PanamaProber} when the
+     * native libraries are loaded and via the ffprobe CLI otherwise. Results for unchanged files are
+     * served from the {@link ProbeCache} when one is configured.
      * Returns a structured AudioMetadata record with format, duration, bitrate,
      * sample rate, channel layout, and all tags.
      * 
      * @return AudioMetadata containing format, duration, bitrate, etc.
-     * @throws io.github.kinsleykajiva.ffmpeg.exception.ExecutionException if ffprobe fails
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.ExecutionException if probing fails
      */
     public io.github.kinsleykajiva.ffmpeg.model.AudioMetadata probe() {
-        return FFprobeJsonProber.probe(inputPath);
+        return probe(io.github.kinsleykajiva.ffmpeg.model.ProbeOptions.defaults());
+    }
+
+    /**
+     * Probes only the sections selected in {@code options}: for example
+     * {@code ProbeOptions.of(Section.FORMAT_ONLY)} when only the duration is needed, or
+     * {@code Section.CHAPTERS} to also read chapter markers.
+     *
+     * @param options which sections to read
+     * @return AudioMetadata with the requested sections filled in
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.ExecutionException if probing fails
+     */
+    public io.github.kinsleykajiva.ffmpeg.model.AudioMetadata probe(io.github.kinsleykajiva.ffmpeg.model.ProbeOptions options) {
+        if (options == null) {
+            throw new IllegalArgumentException("Probe options cannot be null.");
+        }
+        return probeFile(inputPath, options);
     }
 
     /**
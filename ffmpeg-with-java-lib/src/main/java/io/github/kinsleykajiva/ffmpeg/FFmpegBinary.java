@@ -1,18 +1,32 @@
 package io.github.kinsleykajiva.ffmpeg;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException;
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
 
 /**
  * Utility to locate and validate FFmpeg and FFprobe binaries.
+ * Resolved paths, the {@code ffmpeg -version} output and the encoder list are recorded in a
+ * {@link ResolutionManifest}; with a manifest directory set (see
+ * {@link #setManifestDirectory(Path)}) they are reused across JVM starts instead of rescanning.
  */
 public class FFmpegBinary {
 
-    private static File ffmpegExe;
-    private static File ffprobeExe;
-    private static String customBinPath;
+    private static volatile File ffmpegExe;
+    private static volatile File ffprobeExe;
+    private static volatile String customBinPath;
+
+    private static volatile Path manifestDirectory = defaultManifestDirectory();
+    private static volatile ResolutionManifest manifest;
 
     public enum OS {
         WINDOWS(".exe", ".dll", "", ""),
@@ -92,13 +106,33 @@ public class FFmpegBinary {
     public static void setBinPath(String path) {
         if (path == null) throw new IllegalArgumentException("Bin path cannot be null.");
         File dir = new File(path);
-        validate(dir);
-        customBinPath = path;
-        // Reset cached file objects
+        ResolutionManifest candidate = openManifest(path);
+        validate(dir, candidate);
+        synchronized (FFmpegBinary.class) {
+            customBinPath = path;
+            manifest = candidate;
+            // Reset cached file objects
+            ffmpegExe = null;
+            ffprobeExe = null;
+        }
+        CodecRegistry.reset();
+    }
+
+    /**
+     * Sets the directory where resolution manifests are kept across JVM starts; null keeps them
+     * in memory only. Defaults to the {@code ffmpeg.manifest.dir} system property, if set.
+     */
+    public static synchronized void setManifestDirectory(Path directory) {
+        manifestDirectory = directory;
+        manifest = null;
         ffmpegExe = null;
         ffprobeExe = null;
     }
 
+    public static Path getManifestDirectory() {
+        return manifestDirectory;
+    }
+
     public static String getBinPath() {
         return customBinPath;
     }
@@ -108,17 +142,82 @@ public class FFmpegBinary {
     }
 
     public static File getFfmpeg() {
-        if (ffmpegExe == null) {
-            ffmpegExe = resolveBinary("ffmpeg" + CURRENT_OS.getExeExtension(), "ffmpeg");
+        File exe = ffmpegExe;
+        if (exe == null) {
+            exe = resolveBinary("ffmpeg" + CURRENT_OS.getExeExtension(), "ffmpeg");
+            ffmpegExe = exe;
         }
-        return ffmpegExe;
+        return exe;
     }
 
     public static File getFfprobe() {
-        if (ffprobeExe == null) {
-            ffprobeExe = resolveBinary("ffprobe" + CURRENT_OS.getExeExtension(), "ffprobe");
+        File exe = ffprobeExe;
+        if (exe == null) {
+            exe = resolveBinary("ffprobe" + CURRENT_OS.getExeExtension(), "ffprobe");
+            ffprobeExe = exe;
+        }
+        return exe;
+    }
+
+    /**
+     * The output of {@code ffmpeg -version}, run once per installed binary.
+     *
+     * @throws ExecutionException if ffmpeg cannot be run
+     */
+    public static String getVersionOutput() {
+        ResolutionManifest current = manifest();
+        String output = current.versionOutput();
+        if (output == null) {
+            output = run("-version");
+            current.putVersionOutput(output);
         }
-        return ffprobeExe;
+        return output;
+    }
+
+    /**
+     * Names of the encoders the ffmpeg binary was built with, from {@code ffmpeg -encoders},
+     * run once per installed binary.
+     *
+     * @throws ExecutionException if ffmpeg cannot be run
+     */
+    public static List<String> getEncoders() {
+        ResolutionManifest current = manifest();
+        if (current.encoders() == null) listEncoders(current);
+        return current.encoders();
+    }
+
+    /**
+     * Names of the encoders {@code ffmpeg -encoders} flags as experimental, which ffmpeg only
+     * uses with {@code -strict experimental}; cached with {@link #getEncoders()}.
+     *
+     * @throws ExecutionException if ffmpeg cannot be run
+     */
+    static List<String> getExperimentalEncoders() {
+        ResolutionManifest current = manifest();
+        if (current.experimentalEncoders() == null) listEncoders(current);
+        return current.experimentalEncoders();
+    }
+
+    private static void listEncoders(ResolutionManifest current) {
+        String output = run("-hide_banner", "-encoders");
+        current.putEncoders(parseEncoders(output, false), parseEncoders(output, true));
+    }
+
+    /** The recorded path of a shared library (e.g. {@code avutil-60}), or null if not resolved yet. */
+    static File resolvedLibrary(String lib) {
+        return manifest().file("lib:" + lib);
+    }
+
+    /** Drops the recorded path of a shared library, e.g. because it failed to load. */
+    static void forgetLibrary(String lib) {
+        manifest().removeFile("lib:" + lib);
+    }
+
+    /**
+     * @param searched the directories the search visited before finding {@code resolved}
+     */
+    static void recordLibrary(String lib, File resolved, Collection<File> searched) {
+        manifest().putFile("lib:" + lib, resolved, searched);
     }
 
     /**
@@ -127,11 +226,21 @@ public class FFmpegBinary {
      * Skips zero-byte files (often broken symlinks on Windows-hosted Linux builds).
      */
     public static File findFile(File root, String targetName) {
-        return findFileRecursive(root, targetName, 0, 2);
+        return findFile(root, targetName, null);
+    }
+
+    /**
+     * As {@link #findFile(File, String)}, adding every directory it looks in to {@code visited}
+     * (when not null) so the result can be checked for staleness later.
+     */
+    static File findFile(File root, String targetName, List<File> visited) {
+        return findFileRecursive(root, targetName, 0, 2, visited);
     }
 
-    private static File findFileRecursive(File dir, String targetName, int currentDepth, int maxDepth) {
-        if (currentDepth > maxDepth || !dir.exists() || !dir.isDirectory()) return null;
+    private static File findFileRecursive(File dir, String targetName, int currentDepth, int maxDepth, List<File> visited) {
+        if (currentDepth > maxDepth) return null;
+        if (visited != null) visited.add(dir);
+        if (!dir.exists() || !dir.isDirectory()) return null;
 
         // 1. Check immediate directory for exact match (must be > 0 bytes)
         File candidate = new File(dir, targetName);
@@ -156,7 +265,7 @@ public class FFmpegBinary {
                     // Skip hidden or uninformative directories
                     if (child.getName().startsWith(".")) continue;
                     
-                    File found = findFileRecursive(child, targetName, currentDepth + 1, maxDepth);
+                    File found = findFileRecursive(child, targetName, currentDepth + 1, maxDepth, visited);
                     if (found != null) return found;
                 }
             }
@@ -165,9 +274,23 @@ public class FFmpegBinary {
     }
 
     private static File resolveBinary(String exeName, String name) {
+        ResolutionManifest current = manifest();
+        File recorded = current.file(name);
+        if (recorded != null) return recorded;
+        List<File> searched = new ArrayList<>();
+        File found = searchBinary(exeName, searched);
+        if (found == null) {
+            throw new BinaryNotFoundException(name, (customBinPath != null ? customBinPath : "PATH or bundled bin directory"));
+        }
+        current.putFile(name, found, searched);
+        return found;
+    }
+
+    private static File searchBinary(String exeName, List<File> searched) {
+        String customBinPath = FFmpegBinary.customBinPath;
         // 1. Check custom path if set
         if (customBinPath != null) {
-            File found = findFile(new File(customBinPath), exeName);
+            File found = findFile(new File(customBinPath), exeName, searched);
             if (found != null) return found;
         }
 
@@ -175,7 +298,9 @@ public class FFmpegBinary {
         String path = System.getenv("PATH");
         if (path != null) {
             for (String dir : path.split(File.pathSeparator)) {
-                File candidate = new File(dir.trim(), exeName);
+                File pathDir = new File(dir.trim());
+                searched.add(pathDir);
+                File candidate = new File(pathDir, exeName);
                 if (candidate.isFile()) return candidate;
             }
         }
@@ -183,33 +308,46 @@ public class FFmpegBinary {
         // 3. Fall back to bundled binary
         File binDir = resolveBundledBinDir();
         if (binDir != null) {
-            File found = findFile(binDir, exeName);
+            File found = findFile(binDir, exeName, searched);
             if (found != null) return found;
         }
-
-        throw new BinaryNotFoundException(name, (customBinPath != null ? customBinPath : "PATH or bundled bin directory"));
+        return null;
     }
 
-    private static void validate(File dir) {
+    private static void validate(File dir, ResolutionManifest candidate) {
         if (!dir.exists() || !dir.isDirectory()) {
             throw new BinaryNotFoundException("bin-directory", dir.getAbsolutePath());
         }
 
         java.util.List<String> missing = new java.util.ArrayList<>();
         
-        // Check executables
+        // Check executables (the custom path is searched first, so these are also the resolved binaries)
         String exeExt = CURRENT_OS.getExeExtension();
-        if (findFile(dir, "ffmpeg" + exeExt) == null) missing.add("ffmpeg" + exeExt);
-        if (findFile(dir, "ffprobe" + exeExt) == null) missing.add("ffprobe" + exeExt);
+        for (String name : new String[] {"ffmpeg", "ffprobe"}) {
+            if (candidate.file(name) != null) continue;
+            List<File> searched = new ArrayList<>();
+            File found = findFile(dir, name + exeExt, searched);
+            if (found == null) {
+                missing.add(name + exeExt);
+            } else {
+                candidate.putFile(name, found, searched);
+            }
+        }
 
         // Check Libraries
         for (String lib : REQUIRED_LIBS) {
+            if (candidate.file("lib:" + lib) != null) continue;
             String libFilename = getLibraryFilename(lib);
-            if (findFile(dir, libFilename) == null) {
-                // On Linux system installs, libraries may be in /usr/lib instead of /usr/bin
-                if (CURRENT_OS != OS.LINUX || !findInSystemLibPaths(libFilename)) {
-                    missing.add(libFilename);
-                }
+            List<File> searched = new ArrayList<>();
+            File found = findFile(dir, libFilename, searched);
+            // On Linux system installs, libraries may be in /usr/lib instead of /usr/bin
+            if (found == null && CURRENT_OS == OS.LINUX) {
+                found = findInSystemLibPaths(libFilename, searched);
+            }
+            if (found == null) {
+                missing.add(libFilename);
+            } else {
+                candidate.putFile("lib:" + lib, found, searched);
             }
         }
 
@@ -226,21 +364,100 @@ public class FFmpegBinary {
      * If the exact filename (e.g. libavutil.so.60) is not found, it attempts to 
      * find any version of the library by searching for its base name (e.g. libavutil.so).
      */
-    private static boolean findInSystemLibPaths(String filename) {
+    private static File findInSystemLibPaths(String filename, List<File> searched) {
         for (String path : LINUX_LIB_SEARCH_PATHS) {
             File dir = new File(path);
             if (dir.exists() && dir.isDirectory()) {
                 // 1. Try exact match (or prefix match for versions via findFile's fuzzy logic)
-                if (findFile(dir, filename) != null) return true;
+                File found = findFile(dir, filename, searched);
+                if (found != null) return found;
                 
                 // 2. Try base name fallback (e.g. search for libavutil.so if looking for libavutil.so.60)
                 if (filename.contains(".so.")) {
                     String baseName = filename.substring(0, filename.indexOf(".so") + 3);
-                    if (findFile(dir, baseName) != null) return true;
+                    found = findFile(dir, baseName, searched);
+                    if (found != null) return found;
+                }
+            } else {
+                searched.add(dir); // a directory created later may hold the library
+            }
+        }
+        return null;
+    }
+
+    private static ResolutionManifest manifest() {
+        ResolutionManifest current = manifest;
+        if (current == null) {
+            synchronized (FFmpegBinary.class) {
+                current = manifest;
+                if (current == null) {
+                    current = openManifest(customBinPath);
+                    manifest = current;
                 }
             }
         }
-        return false;
+        return current;
+    }
+
+    /**
+     * The manifest for a bin path together with the current {@code PATH}; each entry carries the
+     * stamps of the directories searched for it.
+     */
+    private static ResolutionManifest openManifest(String binPath) {
+        String pathEnv = System.getenv("PATH");
+        File bundled = resolveBundledBinDir();
+        String configuration = CURRENT_OS + "\n" + binPath + "\n" + pathEnv + "\n" + bundled;
+        return new ResolutionManifest(manifestDirectory, configuration);
+    }
+
+    private static Path defaultManifestDirectory() {
+        String dir = System.getProperty("ffmpeg.manifest.dir");
+        return (dir == null || dir.isBlank()) ? null : Path.of(dir);
+    }
+
+    private static String run(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(getFfmpeg().getAbsolutePath());
+        command.addAll(List.of(args));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output;
+            try (InputStream in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new ExecutionException(exitCode, "ffmpeg " + String.join(" ", args) + " failed:\n" + output);
+            }
+            return output;
+        } catch (IOException e) {
+            throw new ExecutionException(-1, "Cannot run ffmpeg: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException(-1, "Interrupted while running ffmpeg " + String.join(" ", args));
+        }
+    }
+
+    /**
+     * Encoder names from {@code ffmpeg -encoders}: after the {@code ------} separator each line
+     * is {@code " A....D name  description"}. With {@code experimentalOnly}, only the encoders
+     * whose flags mark them experimental ({@code " A..X.. name"}).
+     */
+    static List<String> parseEncoders(String output, boolean experimentalOnly) {
+        List<String> names = new ArrayList<>();
+        boolean listing = false;
+        for (String line : output.split("\\R")) {
+            String trimmed = line.trim();
+            if (!listing) {
+                listing = trimmed.startsWith("------");
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+", 3);
+            if (parts.length < 2 || parts[0].length() != 6) continue;
+            // The fourth flag column is X for experimental encoders.
+            if (!experimentalOnly || parts[0].charAt(3) == 'X') names.add(parts[1]);
+        }
+        return List.copyOf(names);
     }
 
     private static File resolveBundledBinDir() {
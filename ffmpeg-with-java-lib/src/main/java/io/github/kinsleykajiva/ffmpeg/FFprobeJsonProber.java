@@ -1,27 +1,42 @@
 package io.github.kinsleykajiva.ffmpeg;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.exception.TimeoutException;
+import io.github.kinsleykajiva.ffmpeg.execution.TimeoutWheel;
 import io.github.kinsleykajiva.ffmpeg.model.AudioMetadata;
+import io.github.kinsleykajiva.ffmpeg.model.Chapter;
+import io.github.kinsleykajiva.ffmpeg.model.ProbeOptions;
+import io.github.kinsleykajiva.ffmpeg.model.ProbeOptions.Section;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Cross-platform metadata prober that uses the ffprobe CLI with JSON output.
  * This avoids the need for platform-specific Panama bindings, making
  * metadata extraction work on Windows, Linux, and macOS.
+ * ffprobe is asked only for the entries the {@link ProbeOptions} sections need
+ * ({@code -show_entries}, {@code -select_streams a:0}), and the JSON is parsed incrementally
+ * straight from the process pipe while stderr is drained concurrently.
  */
 public final class FFprobeJsonProber {
 
-    private static final Gson GSON = new Gson();
+    /** Default time ffprobe may run before it is killed. */
+    public static final long DEFAULT_TIMEOUT_SECONDS = 30;
+
+    // Enough stderr to explain a failure; the rest is discarded.
+    private static final int MAX_STDERR_CHARS = 8 * 1024;
 
     private FFprobeJsonProber() {}
 
@@ -33,6 +48,46 @@ public final class FFprobeJsonProber {
      * @throws ExecutionException if ffprobe fails or produces invalid output.
      */
     public static AudioMetadata probe(String inputPath) {
+        return probe(inputPath, DEFAULT_TIMEOUT_SECONDS, ProbeOptions.defaults());
+    }
+
+    /**
+     * Probes only the sections selected in {@code options}.
+     *
+     * @param inputPath Path to the audio file to probe.
+     * @param options which sections to read
+     * @return AudioMetadata with the requested sections filled in.
+     * @throws ExecutionException if ffprobe fails or produces invalid output.
+     */
+    public static AudioMetadata probe(String inputPath, ProbeOptions options) {
+        return probe(inputPath, DEFAULT_TIMEOUT_SECONDS, options);
+    }
+
+    /**
+     * Probes an audio file using ffprobe, killing it if it runs longer than the timeout.
+     *
+     * @param inputPath Path to the audio file to probe.
+     * @param timeoutSeconds maximum ffprobe run time (0 disables the timeout)
+     * @return A fully populated AudioMetadata record.
+     * @throws ExecutionException if ffprobe fails or produces invalid output.
+     * @throws TimeoutException if ffprobe does not finish in time.
+     */
+    public static AudioMetadata probe(String inputPath, long timeoutSeconds) {
+        return probe(inputPath, timeoutSeconds, ProbeOptions.defaults());
+    }
+
+    /**
+     * Probes the selected sections of an audio file using ffprobe, killing it if it runs longer
+     * than the timeout.
+     *
+     * @param inputPath Path to the audio file to probe.
+     * @param timeoutSeconds maximum ffprobe run time (0 disables the timeout)
+     * @param options which sections to read
+     * @return AudioMetadata with the requested sections filled in.
+     * @throws ExecutionException if ffprobe fails or produces invalid output.
+     * @throws TimeoutException if ffprobe does not finish in time.
+     */
+    public static AudioMetadata probe(String inputPath, long timeoutSeconds, ProbeOptions options) {
         File ffprobe = FFmpegBinary.getFfprobe();
 
         // Resolve to absolute path so ffprobe subprocess can always find the file
@@ -40,108 +95,247 @@ public final class FFprobeJsonProber {
         String resolvedPath = inputFile.getAbsolutePath();
 
         try {
-            ProcessBuilder pb = new ProcessBuilder(
+            List<String> command = new ArrayList<>(List.of(
                 ffprobe.getAbsolutePath(),
                 "-v", "quiet",
-                "-print_format", "json",
-                "-show_format",
-                "-show_streams",
-                resolvedPath
-            );
+                "-print_format", "json"
+            ));
+            command.addAll(selectionArgs(options));
+            command.add(resolvedPath);
+            ProcessBuilder pb = new ProcessBuilder(command);
 
             Process process = pb.start();
 
-            // Capture stdout (JSON) and stderr (errors) separately
-            String jsonOutput;
-            String stderrOutput;
-            try (BufferedReader stdoutReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                 BufferedReader stderrReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-                jsonOutput = stdoutReader.lines().collect(Collectors.joining("\n"));
-                stderrOutput = stderrReader.lines().collect(Collectors.joining("\n"));
+            // Drain stderr concurrently so a chatty ffprobe can never block on a full pipe.
+            StringBuilder stderr = new StringBuilder();
+            Thread stderrReader = Thread.ofVirtual().name("ffprobe-stderr").start(() -> drain(process, stderr));
+
+            AtomicBoolean timedOut = new AtomicBoolean();
+            TimeoutWheel.Timeout timeout = (timeoutSeconds > 0)
+                ? TimeoutWheel.SHARED.schedule(() -> {
+                    if (process.isAlive()) {
+                        timedOut.set(true);
+                        process.destroyForcibly();
+                    }
+                }, timeoutSeconds, TimeUnit.SECONDS)
+                : null;
+
+            AudioMetadata metadata = null;
+            Exception parseError = null;
+            int exitCode;
+            try {
+                try (JsonReader reader = new JsonReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    metadata = parse(reader);
+                } catch (Exception e) {
+                    parseError = e;
+                }
+                exitCode = process.waitFor();
+            } finally {
+                // Drop the deadline (and its reference to the process) as soon as ffprobe is done.
+                if (timeout != null) timeout.cancel();
             }
+            stderrReader.join(TimeUnit.SECONDS.toMillis(2));
 
-            int exitCode = process.waitFor();
-            if (exitCode != 0 || jsonOutput.isBlank()) {
-                String detail = stderrOutput.isBlank() ? "no output" : stderrOutput;
-                throw new ExecutionException(exitCode, 
+            if (timedOut.get()) {
+                throw new TimeoutException(timeoutSeconds);
+            }
+            if (exitCode != 0 || metadata == null) {
+                String detail;
+                synchronized (stderr) {
+                    detail = !stderr.isEmpty() ? stderr.toString()
+                        : (parseError != null ? "invalid output: " + parseError.getMessage() : "no output");
+                }
+                throw new ExecutionException(exitCode,
                     "ffprobe failed for: " + resolvedPath + " (exit code: " + exitCode + ")\n" + detail);
             }
 
-            return parseJson(jsonOutput);
+            return metadata;
 
-        } catch (ExecutionException e) {
+        } catch (ExecutionException | TimeoutException e) {
             throw e;
         } catch (Exception e) {
             throw new ExecutionException(-1, "Failed to execute ffprobe: " + e.getMessage());
         }
     }
 
-    private static AudioMetadata parseJson(String json) {
-        JsonObject root = GSON.fromJson(json, JsonObject.class);
-
-        // --- Extract from "format" ---
-        JsonObject format = root.getAsJsonObject("format");
-        String formatName = getStringOrDefault(format, "format_name", "unknown");
-        double duration = getDoubleOrDefault(format, "duration", 0.0);
-        long bitrate = getLongOrDefault(format, "bit_rate", 0L);
-
-        // --- Extract tags from format ---
-        Map<String, String> tags = new HashMap<>();
-        if (format != null && format.has("tags")) {
-            JsonObject tagsObj = format.getAsJsonObject("tags");
-            for (Map.Entry<String, JsonElement> entry : tagsObj.entrySet()) {
-                tags.put(entry.getKey(), entry.getValue().getAsString());
+    /**
+     * Maps the requested sections to ffprobe arguments, e.g.
+     * {@code -select_streams a:0 -show_entries format=format_name,duration,bit_rate:format_tags:stream=...}.
+     */
+    static List<String> selectionArgs(ProbeOptions options) {
+        List<String> args = new ArrayList<>();
+        StringBuilder entries = new StringBuilder("format=format_name,duration,bit_rate");
+        if (options.includes(Section.TAGS)) {
+            entries.append(":format_tags");
+        }
+        boolean audio = options.includes(Section.AUDIO_STREAM);
+        boolean packets = options.includes(Section.PACKETS_SUMMARY);
+        if (audio || packets) {
+            args.add("-select_streams");
+            args.add("a:0");
+            entries.append(":stream=codec_type");
+            if (audio) entries.append(",sample_rate,channels,channel_layout");
+            if (packets) {
+                entries.append(",nb_read_packets");
+                args.add("-count_packets");
             }
         }
+        if (options.includes(Section.CHAPTERS)) {
+            entries.append(":chapter=id,start_time,end_time:chapter_tags=title");
+        }
+        args.add("-show_entries");
+        args.add(entries.toString());
+        return args;
+    }
+
+    private static void drain(Process process, StringBuilder sink) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                synchronized (sink) {
+                    if (sink.length() < MAX_STDERR_CHARS) {
+                        sink.append(line, 0, Math.min(line.length(), MAX_STDERR_CHARS - sink.length())).append('\n');
+                    }
+                }
+            }
+        } catch (IOException ignored) {}
+    }
 
-        // --- Extract from first audio stream ---
-        int sampleRate = 0;
+    /**
+     * Mutable accumulator filled while streaming through the document.
+     */
+    private static final class Fields {
+        String formatName = "unknown";
+        double duration;
+        long bitrate;
+        final Map<String, String> tags = new HashMap<>();
+        boolean audioFound;
+        int sampleRate;
         String channelLayout = "unknown";
+        long audioPackets;
+        final List<Chapter> chapters = new ArrayList<>();
+    }
 
-        if (root.has("streams")) {
-            JsonArray streams = root.getAsJsonArray("streams");
-            for (JsonElement streamEl : streams) {
-                JsonObject stream = streamEl.getAsJsonObject();
-                String codecType = getStringOrDefault(stream, "codec_type", "");
-                if ("audio".equals(codecType)) {
-                    sampleRate = getIntOrDefault(stream, "sample_rate", 0);
-                    channelLayout = getStringOrDefault(stream, "channel_layout", 
-                        getIntOrDefault(stream, "channels", 0) + "ch");
-                    break; // Use first audio stream
-                }
+    static AudioMetadata parse(JsonReader reader) throws IOException {
+        Fields fields = new Fields();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "format" -> readFormat(reader, fields);
+                case "streams" -> readStreams(reader, fields);
+                case "chapters" -> readChapters(reader, fields.chapters);
+                default -> reader.skipValue(); // programs, packets...
             }
         }
-
-        return new AudioMetadata(formatName, duration, bitrate, sampleRate, channelLayout, tags);
+        reader.endObject();
+        return new AudioMetadata(fields.formatName, fields.duration, fields.bitrate,
+            fields.sampleRate, fields.channelLayout, fields.tags, fields.chapters, fields.audioPackets);
     }
 
-    // --- Utility helpers for safe JSON extraction ---
+    // --- Extract from "format" ---
+    private static void readFormat(JsonReader reader, Fields fields) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "format_name" -> fields.formatName = stringOrDefault(reader, "unknown");
+                case "duration" -> fields.duration = parseDouble(stringOrDefault(reader, null), 0.0);
+                case "bit_rate" -> fields.bitrate = parseLong(stringOrDefault(reader, null), 0L);
+                case "tags" -> readTags(reader, fields.tags);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
 
-    private static String getStringOrDefault(JsonObject obj, String key, String defaultVal) {
-        if (obj != null && obj.has(key) && !obj.get(key).isJsonNull()) {
-            return obj.get(key).getAsString();
+    private static void readTags(JsonReader reader, Map<String, String> tags) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            String value = stringOrDefault(reader, null);
+            if (value != null) tags.put(key, value);
         }
-        return defaultVal;
+        reader.endObject();
     }
 
-    private static double getDoubleOrDefault(JsonObject obj, String key, double defaultVal) {
-        if (obj != null && obj.has(key) && !obj.get(key).isJsonNull()) {
-            try { return Double.parseDouble(obj.get(key).getAsString()); } catch (NumberFormatException e) { /* ignore */ }
+    // --- Extract from first audio stream ---
+    private static void readStreams(JsonReader reader, Fields fields) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (fields.audioFound) {
+                reader.skipValue();
+                continue;
+            }
+            // codec_type may appear after the fields we want, so collect before deciding.
+            String codecType = "";
+            int sampleRate = 0;
+            String channelLayout = null;
+            int channels = 0;
+            long packets = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "codec_type" -> codecType = stringOrDefault(reader, "");
+                    case "sample_rate" -> sampleRate = (int) parseLong(stringOrDefault(reader, null), 0L);
+                    case "channel_layout" -> channelLayout = stringOrDefault(reader, null);
+                    case "channels" -> channels = (int) parseLong(stringOrDefault(reader, null), 0L);
+                    case "nb_read_packets" -> packets = parseLong(stringOrDefault(reader, null), 0L);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if ("audio".equals(codecType)) {
+                fields.audioFound = true; // Use first audio stream
+                fields.sampleRate = sampleRate;
+                fields.channelLayout = (channelLayout != null) ? channelLayout
+                    : (channels > 0 ? channels + "ch" : "unknown");
+                fields.audioPackets = packets;
+            }
         }
-        return defaultVal;
+        reader.endArray();
     }
 
-    private static long getLongOrDefault(JsonObject obj, String key, long defaultVal) {
-        if (obj != null && obj.has(key) && !obj.get(key).isJsonNull()) {
-            try { return Long.parseLong(obj.get(key).getAsString()); } catch (NumberFormatException e) { /* ignore */ }
+    // --- Extract from "chapters" ---
+    private static void readChapters(JsonReader reader, List<Chapter> chapters) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            long id = 0;
+            double start = 0;
+            double end = 0;
+            Map<String, String> tags = new HashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = parseLong(stringOrDefault(reader, null), 0L);
+                    case "start_time" -> start = parseDouble(stringOrDefault(reader, null), 0.0);
+                    case "end_time" -> end = parseDouble(stringOrDefault(reader, null), 0.0);
+                    case "tags" -> readTags(reader, tags);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            chapters.add(new Chapter(id, start, end, tags.get("title")));
         }
-        return defaultVal;
+        reader.endArray();
     }
 
-    private static int getIntOrDefault(JsonObject obj, String key, int defaultVal) {
-        if (obj != null && obj.has(key) && !obj.get(key).isJsonNull()) {
-            try { return Integer.parseInt(obj.get(key).getAsString()); } catch (NumberFormatException e) { /* ignore */ }
+    // --- Utility helpers for safe JSON extraction ---
+
+    private static String stringOrDefault(JsonReader reader, String defaultVal) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
         }
+        reader.skipValue();
         return defaultVal;
     }
+
+    private static double parseDouble(String value, double defaultVal) {
+        if (value == null) return defaultVal;
+        try { return Double.parseDouble(value); } catch (NumberFormatException e) { return defaultVal; }
+    }
+
+    private static long parseLong(String value, long defaultVal) {
+        if (value == null) return defaultVal;
+        try { return Long.parseLong(value); } catch (NumberFormatException e) { return defaultVal; }
+    }
 }
@@ -0,0 +1,346 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.check;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.isNull;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.model.ImageFormat;
+import io.github.kinsleykajiva.ffmpeg.model.Thumbnail;
+
+/**
+ * Extracts still frames from a video in-process, e.g. poster frames for an upload.
+ * For each requested position the demuxer seeks to the nearest earlier keyframe and only that
+ * keyframe is decoded: non-key packets are never sent and the decoder is told to skip them, so
+ * N thumbnails cost N keyframe decodes instead of N ffmpeg processes. Frames are scaled with
+ * {@code sws_scale_frame} into one RGB buffer that is reused for every frame.
+ *
+ * <pre>{@code
+ * List<Thumbnail> posters = FrameExtractor.thumbnails("upload.mp4", 10, 320);
+ * }</pre>
+ */
+public final class FrameExtractor {
+
+    /**
+     * Receives extracted frames.
+     */
+    @FunctionalInterface
+    public interface FrameSink {
+        /**
+         * Called once per frame with packed RGB24 pixels. {@code rgb} is reused for the next
+         * frame and is only valid during the call; rows are {@code stride} bytes apart, which may
+         * be more than {@code width * 3}.
+         *
+         * @param index position of the frame among the requested ones, from 0
+         * @param timestampSeconds presentation time of the frame
+         */
+        void accept(int index, double timestampSeconds, MemorySegment rgb, int width, int height, int stride);
+    }
+
+    private FrameExtractor() {}
+
+    /**
+     * Writes {@code count} JPEG thumbnails spread evenly over the video next to the input file,
+     * named {@code <name>-thumb-01.jpg} and so on.
+     *
+     * @param path the input video
+     * @param count number of thumbnails wanted
+     * @param width thumbnail width in pixels; the height keeps the display aspect ratio
+     * @return the thumbnails written, fewer than {@code count} if the video has fewer keyframes
+     * @throws IllegalArgumentException if path is null or count or width is not positive
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException if the native libraries are not loaded
+     * @throws ExecutionException if the input has no decodable video or an image cannot be written
+     */
+    public static List<Thumbnail> thumbnails(String path, int count, int width) {
+        if (path == null) {
+            throw new IllegalArgumentException("Input path cannot be null.");
+        }
+        return thumbnails(path, count, width, Path.of(path).toAbsolutePath().getParent(), ImageFormat.JPEG);
+    }
+
+    /**
+     * Writes {@code count} thumbnails spread evenly over the video into {@code outputDir}.
+     */
+    public static List<Thumbnail> thumbnails(String path, int count, int width, Path outputDir, ImageFormat format) {
+        if (path == null || outputDir == null || format == null) {
+            throw new IllegalArgumentException("Input path, output directory and image format cannot be null.");
+        }
+        String name = Path.of(path).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = (dot > 0) ? name.substring(0, dot) : name;
+
+        List<Thumbnail> written = new ArrayList<>(count);
+        ImageWriter writer = new ImageWriter();
+        frames(path, count, width, (index, seconds, rgb, w, h, stride) -> {
+            Path file = outputDir.resolve(String.format("%s-thumb-%02d.%s", stem, index + 1, format.getExtension()));
+            writer.write(rgb, w, h, stride, format, file);
+            written.add(new Thumbnail(file, seconds, w, h));
+        });
+        return List.copyOf(written);
+    }
+
+    /**
+     * Decodes {@code count} keyframes spread evenly over the video and hands each to
+     * {@code sink} as RGB scaled to {@code width}. For inputs whose duration is unknown the first
+     * {@code count} keyframes are used.
+     *
+     * @throws IllegalArgumentException if an argument is null or count or width is not positive
+     * @throws ExecutionException if the input cannot be opened or has no decodable video
+     */
+    public static void frames(String path, int count, int width, FrameSink sink) {
+        if (path == null || sink == null) {
+            throw new IllegalArgumentException("Input path and sink cannot be null.");
+        }
+        if (count <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Count and width must be positive. Provided: " + count + ", " + width);
+        }
+        NativeSupport.requireNative("frame extraction");
+        try (Extraction extraction = new Extraction(new File(path).getAbsolutePath())) {
+            extraction.run(count, width, sink);
+        }
+    }
+
+    /**
+     * One pass over an input; owns every native resource it opens.
+     */
+    private static final class Extraction implements AutoCloseable {
+        private final String path;
+        private final Arena arena = Arena.ofConfined();
+        private final MemorySegment formatHolder = arena.allocate(C_POINTER);
+        private final MemorySegment codecHolder = arena.allocate(C_POINTER);
+        private final NativeObjectPool pool = NativeObjectPool.current();
+
+        private MemorySegment formatCtx = MemorySegment.NULL;
+        private MemorySegment codecCtx = MemorySegment.NULL;
+        private MemorySegment packet = MemorySegment.NULL;
+        private MemorySegment frame = MemorySegment.NULL;
+        private MemorySegment rgb = MemorySegment.NULL;
+        private MemorySegment sws = MemorySegment.NULL;
+        private int streamIndex;
+        private int timeBaseNum;
+        private int timeBaseDen;
+        private long startPts;
+        private long lastPts = AV_NOPTS_VALUE();
+
+        Extraction(String path) {
+            this.path = path;
+        }
+
+        void run(int count, int width, FrameSink sink) {
+            open();
+            double duration = durationSeconds();
+            for (int i = 0; i < count; i++) {
+                double target = 0;
+                if (duration > 0) {
+                    // Middle of each of count equal slices, so the first frame is not the (often black) opening.
+                    target = duration * (i + 0.5) / count;
+                    seek(target);
+                }
+                if (!nextKeyframe()) return;
+                try {
+                    long pts = AVFrame.best_effort_timestamp(frame);
+                    double seconds = (pts == AV_NOPTS_VALUE()) ? target : toSeconds(pts);
+                    scale(width);
+                    int stride = AVFrame.linesize(rgb, 0);
+                    int height = AVFrame.height(rgb);
+                    sink.accept(i, seconds, AVFrame.data(rgb, 0).asSlice(0, (long) stride * height),
+                        AVFrame.width(rgb), height, stride);
+                } finally {
+                    av_frame_unref(frame);
+                }
+            }
+        }
+
+        private void open() {
+            check(avformat_open_input(formatHolder, arena.allocateFrom(path), MemorySegment.NULL, MemorySegment.NULL),
+                "avformat_open_input", path);
+            formatCtx = formatHolder.get(C_POINTER, 0);
+            check(avformat_find_stream_info(formatCtx, MemorySegment.NULL), "avformat_find_stream_info", path);
+
+            MemorySegment decoderHolder = arena.allocate(C_POINTER);
+            streamIndex = check(av_find_best_stream(formatCtx, AVMEDIA_TYPE_VIDEO(), -1, -1, decoderHolder, 0),
+                "av_find_best_stream", path);
+            MemorySegment decoder = decoderHolder.get(C_POINTER, 0);
+
+            MemorySegment streams = AVFormatContext.streams(formatCtx);
+            for (int i = 0; i < AVFormatContext.nb_streams(formatCtx); i++) {
+                if (i != streamIndex) AVStream.discard(streams.getAtIndex(C_POINTER, i), AVDISCARD_ALL());
+            }
+            MemorySegment stream = streams.getAtIndex(C_POINTER, streamIndex);
+            MemorySegment timeBase = AVStream.time_base(stream);
+            timeBaseNum = AVRational.num(timeBase);
+            timeBaseDen = AVRational.den(timeBase);
+            long streamStart = AVStream.start_time(stream);
+            startPts = (streamStart == AV_NOPTS_VALUE()) ? 0 : streamStart;
+
+            codecCtx = avcodec_alloc_context3(decoder);
+            if (isNull(codecCtx)) {
+                throw new ExecutionException(-1, "avcodec_alloc_context3 failed for: " + path);
+            }
+            codecHolder.set(C_POINTER, 0, codecCtx);
+            check(avcodec_parameters_to_context(codecCtx, AVStream.codecpar(stream)), "avcodec_parameters_to_context", path);
+            AVCodecContext.skip_frame(codecCtx, AVDISCARD_NONKEY());
+            check(avcodec_open2(codecCtx, decoder, MemorySegment.NULL), "avcodec_open2", path);
+
+            packet = pool.packet();
+            frame = pool.frame();
+        }
+
+        private double durationSeconds() {
+            long duration = AVFormatContext.duration(formatCtx);
+            return (duration == AV_NOPTS_VALUE() || duration <= 0) ? 0.0 : duration / (double) AV_TIME_BASE();
+        }
+
+        private double toSeconds(long pts) {
+            return (timeBaseDen == 0) ? 0.0 : (pts - startPts) * (double) timeBaseNum / timeBaseDen;
+        }
+
+        /** Seeks to the keyframe at or before {@code seconds}; unseekable inputs just read on. */
+        private void seek(double seconds) {
+            if (timeBaseNum == 0) return;
+            long ts = startPts + Math.round(seconds * timeBaseDen / timeBaseNum);
+            if (av_seek_frame(formatCtx, streamIndex, ts, AVSEEK_FLAG_BACKWARD()) >= 0) {
+                avcodec_flush_buffers(codecCtx);
+            }
+        }
+
+        /**
+         * Decodes the next keyframe after the last one returned, so a backward seek that lands
+         * on an already used keyframe moves on to the following one.
+         *
+         * @return false once the stream is exhausted
+         */
+        private boolean nextKeyframe() {
+            while (true) {
+                int ret = avcodec_receive_frame(codecCtx, frame);
+                if (ret >= 0) {
+                    long pts = AVFrame.best_effort_timestamp(frame);
+                    if (lastPts != AV_NOPTS_VALUE() && pts != AV_NOPTS_VALUE() && pts <= lastPts) {
+                        av_frame_unref(frame);
+                        continue;
+                    }
+                    lastPts = pts;
+                    return true;
+                } else if (ret == NativeSupport.AVERROR_EAGAIN) {
+                    sendNextKeyPacket();
+                } else if (ret == AVERROR_EOF()) {
+                    return false;
+                } else {
+                    check(ret, "avcodec_receive_frame", path);
+                }
+            }
+        }
+
+        private void sendNextKeyPacket() {
+            while (true) {
+                int ret = av_read_frame(formatCtx, packet);
+                if (ret == AVERROR_EOF()) {
+                    check(avcodec_send_packet(codecCtx, MemorySegment.NULL), "avcodec_send_packet", path);
+                    return;
+                }
+                check(ret, "av_read_frame", path);
+                try {
+                    if (AVPacket.stream_index(packet) == streamIndex && (AVPacket.flags(packet) & AV_PKT_FLAG_KEY()) != 0) {
+                        check(avcodec_send_packet(codecCtx, packet), "avcodec_send_packet", path);
+                        return;
+                    }
+                } finally {
+                    av_packet_unref(packet);
+                }
+            }
+        }
+
+        /**
+         * Scales the decoded frame into the RGB frame, which is allocated for the first frame and
+         * reused afterwards.
+         */
+        private void scale(int width) {
+            int srcWidth = AVFrame.width(frame);
+            int srcHeight = AVFrame.height(frame);
+            if (isNull(rgb)) {
+                rgb = pool.frame();
+                AVFrame.width(rgb, width);
+                AVFrame.height(rgb, outputHeight(width, srcWidth, srcHeight));
+                AVFrame.format(rgb, AV_PIX_FMT_RGB24());
+                check(av_frame_get_buffer(rgb, 0), "av_frame_get_buffer", path);
+            }
+            // Returns the existing context unless the source geometry changed mid-stream.
+            sws = sws_getCachedContext(sws, srcWidth, srcHeight, AVFrame.format(frame),
+                AVFrame.width(rgb), AVFrame.height(rgb), AV_PIX_FMT_RGB24(), SWS_AREA(),
+                MemorySegment.NULL, MemorySegment.NULL, MemorySegment.NULL);
+            if (isNull(sws)) {
+                throw new ExecutionException(-1, "sws_getCachedContext failed for: " + path);
+            }
+            check(sws_scale_frame(sws, rgb, frame), "sws_scale_frame", path);
+        }
+
+        /** Height for {@code width} at the frame's display aspect ratio, rounded to an even number. */
+        private int outputHeight(int width, int srcWidth, int srcHeight) {
+            MemorySegment sar = AVFrame.sample_aspect_ratio(frame);
+            double pixelAspect = (AVRational.num(sar) > 0 && AVRational.den(sar) > 0)
+                ? AVRational.num(sar) / (double) AVRational.den(sar) : 1.0;
+            long height = Math.round(width * (double) srcHeight / (srcWidth * pixelAspect));
+            return (int) Math.max(2, height & ~1L);
+        }
+
+        @Override
+        public void close() {
+            if (!isNull(sws)) sws_freeContext(sws);
+            pool.release(rgb);
+            pool.release(frame);
+            pool.release(packet);
+            if (!isNull(codecCtx)) avcodec_free_context(codecHolder);
+            if (!isNull(formatCtx)) avformat_close_input(formatHolder);
+            arena.close();
+        }
+    }
+
+    /**
+     * Encodes RGB frames with ImageIO through one image whose pixel array is refilled per frame.
+     */
+    private static final class ImageWriter {
+        private BufferedImage image;
+        private byte[] pixels;
+
+        void write(MemorySegment rgb, int width, int height, int stride, ImageFormat format, Path file) {
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
+                    width, height, width * 3, 3, new int[] {0, 1, 2}, null);
+                ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                    false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+                image = new BufferedImage(colorModel, raster, false, null);
+                pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+            }
+            int rowBytes = width * 3;
+            for (int y = 0; y < height; y++) {
+                MemorySegment.copy(rgb, ValueLayout.JAVA_BYTE, (long) y * stride, pixels, y * rowBytes, rowBytes);
+            }
+            try {
+                if (!ImageIO.write(image, format.getFormatName(), file.toFile())) {
+                    throw new ExecutionException(-1, "No " + format + " writer available for: " + file);
+                }
+            } catch (IOException e) {
+                throw new ExecutionException(-1, "Cannot write thumbnail: " + file + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.model.AudioMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pure-Java metadata prober for MP3, WAV, FLAC and Ogg (Vorbis/Opus) files.
+ * Only the head and tail of the file are read, with positional reads into heap buffers (nothing is
+ * memory-mapped, so bulk probing leaves no mappings behind for the GC), and the container headers are parsed
+ * directly: Xing/VBRI frame counts or the frame bitrate for MP3, the {@code fmt }/{@code data}
+ * chunks for WAV, STREAMINFO for FLAC and the identification header plus last granule position
+ * for Ogg; tags come from ID3v2/ID3v1, RIFF INFO and Vorbis comments. The bitrate is computed from the
+ * audio payload, so tags and cover art do not inflate it.
+ * Anything the parser cannot decide is left to {@link FFprobeJsonProber}.
+ */
+public final class HeaderProber {
+
+    private static final int HEAD_BYTES = 256 * 1024;
+    private static final int OGG_TAIL_BYTES = 64 * 1024;
+    private static final int MP3_SYNC_SCAN_BYTES = 64 * 1024;
+
+    private static final int[] MP3_BITRATES_V1 = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] MP3_BITRATES_V2 = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+    private static final int[] MP3_SAMPLE_RATES = {44100, 48000, 32000};
+    // Sync, version, layer and sample rate bits, which stay constant across the frames of a stream.
+    private static final int MP3_STREAM_MASK = 0xFFFE0C00;
+
+    private static final Map<String, String> ID3_KEYS = Map.ofEntries(
+        Map.entry("TIT2", "title"), Map.entry("TPE1", "artist"), Map.entry("TALB", "album"),
+        Map.entry("TPE2", "album_artist"), Map.entry("TDRC", "date"), Map.entry("TYER", "date"),
+        Map.entry("TRCK", "track"), Map.entry("TPOS", "disc"), Map.entry("TCON", "genre"),
+        Map.entry("TCOM", "composer"), Map.entry("TCOP", "copyright"), Map.entry("TENC", "encoded_by"),
+        Map.entry("TSSE", "encoder"), Map.entry("TLAN", "language"), Map.entry("TPUB", "publisher"));
+
+    private static final Map<String, String> RIFF_INFO_KEYS = Map.of(
+        "INAM", "title", "IART", "artist", "IPRD", "album", "ICRD", "date", "ICMT", "comment",
+        "IGNR", "genre", "ISFT", "encoder", "ITRK", "track", "ICOP", "copyright");
+
+    private HeaderProber() {}
+
+    /**
+     * Probes an audio file from its headers, falling back to ffprobe for unsupported or
+     * ambiguous files.
+     *
+     * @param inputPath Path to the audio file to probe.
+     * @return A fully populated AudioMetadata record.
+     * @throws ExecutionException if the fallback probe fails.
+     */
+    public static AudioMetadata probe(String inputPath) {
+        AudioMetadata metadata = tryProbe(inputPath);
+        return (metadata != null) ? metadata : FFprobeJsonProber.probe(inputPath);
+    }
+
+    /**
+     * Probes an audio file from its headers only.
+     *
+     * @return the metadata, or null if the format is not recognised or the headers are incomplete
+     */
+    public static AudioMetadata tryProbe(String inputPath) {
+        try (FileChannel channel = FileChannel.open(Path.of(inputPath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 12) return null;
+            Source source = new Source(channel, size);
+            ByteBuffer head = source.head;
+
+            if (matches(head, 0, "RIFF") && matches(head, 8, "WAVE")) {
+                return probeWav(source, size);
+            }
+            if (matches(head, 0, "OggS")) {
+                return probeOgg(source, head, size);
+            }
+            // FLAC and MP3 may both be preceded by an ID3v2 tag.
+            Map<String, String> tags = new HashMap<>();
+            long audioStart = 0;
+            if (matches(head, 0, "ID3")) {
+                audioStart = readId3v2(head, tags);
+                if (audioStart < 0) return null;
+            }
+            ByteBuffer audio = audioStart == 0 ? head : source.copy(audioStart, MP3_SYNC_SCAN_BYTES);
+            if (audio.remaining() >= 4 && matches(audio, 0, "fLaC")) {
+                return probeFlac(source, audioStart, size, tags);
+            }
+            return probeMp3(source, audio, audioStart, size, tags);
+        } catch (IOException | RuntimeException e) {
+            // Truncated or malformed headers: let a full prober decide.
+            return null;
+        }
+    }
+
+    // --- MP3 ---
+
+    private static AudioMetadata probeMp3(Source source, ByteBuffer audio, long audioStart, long size,
+                                          Map<String, String> tags) throws IOException {
+        int limit = Math.min(audio.limit() - 4, MP3_SYNC_SCAN_BYTES);
+        for (int pos = 0; pos < limit; pos++) {
+            int header = audio.getInt(pos);
+            if (mp3FrameLength(header) <= 0) continue;
+            // Require two more matching frames so stray sync bytes in other formats are not mistaken for MP3.
+            // Near the end of the buffer one is enough, but never none: an unverified sync is left to ffprobe.
+            int next = pos;
+            int matched = 0;
+            while (matched < 2) {
+                int length = mp3FrameLength(audio.getInt(next));
+                next += length;
+                if (length <= 0 || next + 4 > audio.limit()
+                        || (audio.getInt(next) & MP3_STREAM_MASK) != (header & MP3_STREAM_MASK)) break;
+                matched++;
+            }
+            if (matched == 0 || (matched < 2 && next + 4 <= audio.limit())) continue;
+            return mp3Metadata(source, audio, pos, header, audioStart, size, tags);
+        }
+        return null;
+    }
+
+    private static AudioMetadata mp3Metadata(Source source, ByteBuffer audio, int pos, int header,
+                                             long audioStart, long size, Map<String, String> tags) throws IOException {
+        boolean mpeg1 = ((header >>> 19) & 3) == 3;
+        int sampleRate = mp3SampleRate(header);
+        int bitrateKbps = (mpeg1 ? MP3_BITRATES_V1 : MP3_BITRATES_V2)[(header >>> 12) & 0xF];
+        boolean mono = ((header >>> 6) & 3) == 3;
+        int samplesPerFrame = mpeg1 ? 1152 : 576;
+
+        ByteBuffer id3v1 = (size >= 128) ? source.region(size - 128, 128) : null;
+        boolean hasId3v1 = id3v1 != null && matches(id3v1, 0, "TAG");
+        long audioBytes = size - (audioStart + pos) - (hasId3v1 ? 128 : 0);
+
+        int sideInfo = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        int xing = pos + 4 + sideInfo;
+        int vbri = pos + 4 + 32;
+        double duration;
+        if (xing + 12 <= audio.limit() && (matches(audio, xing, "Xing") || matches(audio, xing, "Info"))
+                && (audio.getInt(xing + 4) & 1) != 0) {
+            duration = (audio.getInt(xing + 8) & 0xFFFFFFFFL) * samplesPerFrame / (double) sampleRate;
+            // The optional byte count follows the frame count.
+            if ((audio.getInt(xing + 4) & 2) != 0 && xing + 16 <= audio.limit()) {
+                long bytes = audio.getInt(xing + 12) & 0xFFFFFFFFL;
+                if (bytes > 0) audioBytes = bytes;
+            }
+        } else if (vbri + 18 <= audio.limit() && matches(audio, vbri, "VBRI")) {
+            duration = (audio.getInt(vbri + 14) & 0xFFFFFFFFL) * samplesPerFrame / (double) sampleRate;
+            long bytes = audio.getInt(vbri + 10) & 0xFFFFFFFFL;
+            if (bytes > 0) audioBytes = bytes;
+        } else {
+            // Constant bitrate: the duration follows from the audio payload size.
+            duration = audioBytes * 8.0 / (bitrateKbps * 1000.0);
+        }
+        if (duration <= 0) return null;
+
+        if (tags.isEmpty() && hasId3v1) {
+            readId3v1(id3v1, tags);
+        }
+        return metadata("mp3", duration, audioBytes, sampleRate, mono ? 1 : 2, true, tags);
+    }
+
+    /** Returns the frame length in bytes for a valid MPEG audio Layer III header, or -1. */
+    private static int mp3FrameLength(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) return -1;
+        int version = (header >>> 19) & 3;
+        int layer = (header >>> 17) & 3;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 3;
+        if (version == 1 || layer != 1 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) return -1;
+        boolean mpeg1 = version == 3;
+        int bitrate = (mpeg1 ? MP3_BITRATES_V1 : MP3_BITRATES_V2)[bitrateIndex] * 1000;
+        int padding = (header >>> 9) & 1;
+        return (mpeg1 ? 144 : 72) * bitrate / mp3SampleRate(header) + padding;
+    }
+
+    private static int mp3SampleRate(int header) {
+        int version = (header >>> 19) & 3;
+        int rate = MP3_SAMPLE_RATES[(header >>> 10) & 3];
+        return version == 3 ? rate : (version == 2 ? rate / 2 : rate / 4);
+    }
+
+    /**
+     * Reads ID3v2.3/2.4 text frames into {@code tags}.
+     *
+     * @return the offset of the first byte after the tag, or -1 if the tag cannot be parsed
+     */
+    private static long readId3v2(ByteBuffer head, Map<String, String> tags) {
+        int major = head.get(3);
+        int flags = head.get(5) & 0xFF;
+        long tagEnd = 10 + syncsafe(head, 6) + ((flags & 0x10) != 0 ? 10 : 0);
+        // Unsynchronised or pre-2.3 tags use a different frame layout; keep the audio, skip the tags.
+        if (major < 3 || major > 4 || (flags & 0x80) != 0) return tagEnd;
+
+        int pos = 10;
+        if ((flags & 0x40) != 0) {
+            pos += major == 4 ? syncsafe(head, pos) : 4 + head.getInt(pos);
+        }
+        int end = (int) Math.min(tagEnd, head.limit());
+        while (pos + 10 <= end && head.get(pos) != 0) {
+            String id = ascii(head, pos, 4);
+            int frameSize = major == 4 ? syncsafe(head, pos + 4) : head.getInt(pos + 4);
+            int body = pos + 10;
+            if (frameSize <= 0 || body + frameSize > end) break;
+            String key = ID3_KEYS.get(id);
+            if (key != null && frameSize > 1) {
+                String value = id3Text(head, body, frameSize);
+                if (!value.isEmpty()) tags.putIfAbsent(key, value);
+            }
+            pos = body + frameSize;
+        }
+        return tagEnd;
+    }
+
+    private static String id3Text(ByteBuffer buf, int body, int length) {
+        int encoding = buf.get(body);
+        Charset charset = switch (encoding) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        String text = decode(buf, body + 1, length - 1, charset);
+        // Multiple values are null-separated; report the first like ffprobe does.
+        int nul = text.indexOf('\0');
+        return (nul >= 0 ? text.substring(0, nul) : text).trim();
+    }
+
+    private static void readId3v1(ByteBuffer tail, Map<String, String> tags) {
+        putLatin1(tags, "title", tail, 3, 30);
+        putLatin1(tags, "artist", tail, 33, 30);
+        putLatin1(tags, "album", tail, 63, 30);
+        putLatin1(tags, "date", tail, 93, 4);
+        if (tail.get(125) == 0 && tail.get(126) != 0) {
+            putLatin1(tags, "comment", tail, 97, 28);
+            tags.put("track", Integer.toString(tail.get(126) & 0xFF));
+        } else {
+            putLatin1(tags, "comment", tail, 97, 30);
+        }
+    }
+
+    private static void putLatin1(Map<String, String> tags, String key, ByteBuffer buf, int offset, int length) {
+        String value = decode(buf, offset, length, StandardCharsets.ISO_8859_1);
+        int nul = value.indexOf('\0');
+        value = (nul >= 0 ? value.substring(0, nul) : value).trim();
+        if (!value.isEmpty()) tags.put(key, value);
+    }
+
+    // --- WAV ---
+
+    private static AudioMetadata probeWav(Source source, long size) throws IOException {
+        int channels = 0;
+        int sampleRate = 0;
+        long byteRate = 0;
+        long dataSize = -1;
+        Map<String, String> tags = new HashMap<>();
+
+        long pos = 12;
+        while (pos + 8 <= size) {
+            ByteBuffer chunkHeader = source.region(pos, 8).order(ByteOrder.LITTLE_ENDIAN);
+            String id = ascii(chunkHeader, 0, 4);
+            long chunkSize = chunkHeader.getInt(4) & 0xFFFFFFFFL;
+            long body = pos + 8;
+            switch (id) {
+                case "fmt " -> {
+                    ByteBuffer fmt = source.region(body, 16).order(ByteOrder.LITTLE_ENDIAN);
+                    channels = fmt.getShort(2) & 0xFFFF;
+                    sampleRate = fmt.getInt(4);
+                    byteRate = fmt.getInt(8) & 0xFFFFFFFFL;
+                }
+                case "data" -> {
+                    // Streamed writers leave the size unset; the payload then runs to the end of the file.
+                    dataSize = (chunkSize == 0 || chunkSize == 0xFFFFFFFFL || body + chunkSize > size)
+                        ? size - body : chunkSize;
+                }
+                case "LIST" -> {
+                    if (chunkSize <= HEAD_BYTES) {
+                        readRiffInfo(source.region(body, (int) chunkSize).order(ByteOrder.LITTLE_ENDIAN), tags);
+                    }
+                }
+                default -> { }
+            }
+            if (id.equals("data") && dataSize != chunkSize) break;
+            pos = body + chunkSize + (chunkSize & 1);
+        }
+
+        if (channels == 0 || sampleRate <= 0 || byteRate == 0 || dataSize < 0) return null;
+        return metadata("wav", dataSize / (double) byteRate, dataSize, sampleRate, channels, false, tags);
+    }
+
+    private static void readRiffInfo(ByteBuffer list, Map<String, String> tags) {
+        if (list.limit() < 4 || !matches(list, 0, "INFO")) return;
+        int pos = 4;
+        while (pos + 8 <= list.limit()) {
+            String id = ascii(list, pos, 4);
+            int length = list.getInt(pos + 4);
+            if (length < 0 || pos + 8 + length > list.limit()) break;
+            String key = RIFF_INFO_KEYS.get(id);
+            if (key != null) {
+                putLatin1(tags, key, list, pos + 8, length);
+            }
+            pos += 8 + length + (length & 1);
+        }
+    }
+
+    // --- FLAC ---
+
+    private static AudioMetadata probeFlac(Source source, long start, long size,
+                                           Map<String, String> tags) throws IOException {
+        int sampleRate = 0;
+        int channels = 0;
+        long totalSamples = 0;
+        long pos = start + 4;
+        boolean last = false;
+        while (!last && pos + 4 <= size) {
+            ByteBuffer blockHeader = source.region(pos, 4);
+            int flags = blockHeader.get(0) & 0xFF;
+            last = (flags & 0x80) != 0;
+            int type = flags & 0x7F;
+            int length = ((blockHeader.get(1) & 0xFF) << 16) | ((blockHeader.get(2) & 0xFF) << 8) | (blockHeader.get(3) & 0xFF);
+            long body = pos + 4;
+            if (type == 0 && length >= 18) {
+                ByteBuffer info = source.region(body, 18);
+                long packed = info.getLong(10);
+                sampleRate = (int) (packed >>> 44);
+                channels = (int) ((packed >>> 41) & 0x7) + 1;
+                totalSamples = packed & 0xFFFFFFFFFL;
+            } else if (type == 4 && length <= HEAD_BYTES) {
+                readVorbisComments(source.region(body, length).order(ByteOrder.LITTLE_ENDIAN), 0, tags);
+            }
+            pos = body + length;
+        }
+        if (sampleRate <= 0 || totalSamples == 0) return null;
+        // The payload excludes a leading ID3v2 tag; metadata blocks (e.g. a picture) are counted as in ffprobe.
+        return metadata("flac", totalSamples / (double) sampleRate, size - start, sampleRate, channels, true, tags);
+    }
+
+    // --- Ogg ---
+
+    private static AudioMetadata probeOgg(Source source, ByteBuffer head, long size) throws IOException {
+        OggPackets packets = new OggPackets(head);
+        ByteBuffer ident = packets.next();
+        if (ident == null || (head.get(5) & 0x02) == 0) return null;
+        int serial = head.order(ByteOrder.LITTLE_ENDIAN).getInt(14);
+
+        int channels;
+        int sampleRate;
+        long preSkip = 0;
+        String commentMagic;
+        int commentOffset;
+        if (ident.limit() >= 16 && ident.get(0) == 1 && matches(ident, 1, "vorbis")) {
+            channels = ident.get(11) & 0xFF;
+            sampleRate = ident.getInt(12);
+            commentMagic = "\u0003vorbis";
+            commentOffset = 7;
+        } else if (ident.limit() >= 19 && matches(ident, 0, "OpusHead")) {
+            channels = ident.get(9) & 0xFF;
+            preSkip = ident.getShort(10) & 0xFFFF;
+            sampleRate = 48000; // Opus granule positions always count 48 kHz samples
+            commentMagic = "OpusTags";
+            commentOffset = 8;
+        } else {
+            return null; // Speex, Ogg FLAC, Theora... are left to ffprobe
+        }
+
+        Map<String, String> tags = new HashMap<>();
+        ByteBuffer comments = packets.next();
+        if (comments != null && comments.limit() >= commentOffset && matches(comments, 0, commentMagic)) {
+            readVorbisComments(comments, commentOffset, tags);
+        }
+
+        long granule = lastGranule(source, size, serial);
+        if (sampleRate <= 0 || granule <= preSkip) return null;
+        return metadata("ogg", (granule - preSkip) / (double) sampleRate, size, sampleRate, channels, true, tags);
+    }
+
+    /** Finds the granule position of the last page belonging to {@code serial}, or -1. */
+    private static long lastGranule(Source source, long size, int serial) throws IOException {
+        long start = Math.max(0, size - OGG_TAIL_BYTES);
+        ByteBuffer tail = source.region(start, (int) (size - start)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int pos = tail.limit() - 27; pos >= 0; pos--) {
+            if (matches(tail, pos, "OggS") && tail.getInt(pos + 14) == serial) {
+                long granule = tail.getLong(pos + 6);
+                if (granule != -1) return granule;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reassembles packets from consecutive Ogg pages in the head.
+     */
+    private static final class OggPackets {
+        private final ByteBuffer buf;
+        private int pagePos;
+        private int segmentIndex;
+
+        OggPackets(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        /** Returns the next complete packet, or null if it does not end within the head. */
+        ByteBuffer next() {
+            java.io.ByteArrayOutputStream packet = new java.io.ByteArrayOutputStream();
+            while (pagePos + 27 <= buf.limit() && matches(buf, pagePos, "OggS")) {
+                int segments = buf.get(pagePos + 26) & 0xFF;
+                int dataPos = pagePos + 27 + segments;
+                for (int i = 0; i < segmentIndex; i++) {
+                    dataPos += buf.get(pagePos + 27 + i) & 0xFF;
+                }
+                while (segmentIndex < segments) {
+                    int lacing = buf.get(pagePos + 27 + segmentIndex) & 0xFF;
+                    if (dataPos + lacing > buf.limit()) return null;
+                    for (int i = 0; i < lacing; i++) packet.write(buf.get(dataPos + i));
+                    dataPos += lacing;
+                    segmentIndex++;
+                    if (lacing < 255) {
+                        return ByteBuffer.wrap(packet.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                }
+                pagePos = dataPos;
+                segmentIndex = 0;
+            }
+            return null;
+        }
+    }
+
+    private static void readVorbisComments(ByteBuffer buf, int pos, Map<String, String> tags) {
+        pos += 4 + buf.getInt(pos); // vendor string
+        int count = buf.getInt(pos);
+        pos += 4;
+        for (int i = 0; i < count && pos + 4 <= buf.limit(); i++) {
+            int length = buf.getInt(pos);
+            pos += 4;
+            if (length < 0 || pos + length > buf.limit()) break;
+            String comment = decode(buf, pos, length, StandardCharsets.UTF_8);
+            int eq = comment.indexOf('=');
+            if (eq > 0) tags.putIfAbsent(comment.substring(0, eq), comment.substring(eq + 1));
+            pos += length;
+        }
+    }
+
+    // --- Shared helpers ---
+
+    /**
+     * @param payloadBytes size of the audio data, excluding tags and cover art
+     */
+    private static AudioMetadata metadata(String format, double duration, long payloadBytes, int sampleRate,
+                                          int channels, boolean standardLayout, Map<String, String> tags) {
+        long bitrate = duration > 0 ? (long) (payloadBytes * 8 / duration) : 0;
+        return new AudioMetadata(format, duration, bitrate, sampleRate, channelLayout(channels, standardLayout), tags);
+    }
+
+    /**
+     * Names the layout like {@link PanamaProber}: FLAC, Vorbis and MP3 define a channel order, so
+     * their layouts get names; plain WAV does not, so beyond stereo it reports "<n>ch".
+     */
+    private static String channelLayout(int channels, boolean standardLayout) {
+        if (channels == 1) return "mono";
+        if (channels == 2) return "stereo";
+        if (standardLayout) {
+            switch (channels) {
+                case 3: return "3.0";
+                case 4: return "quad";
+                case 5: return "5.0";
+                case 6: return "5.1";
+                case 7: return "6.1";
+                case 8: return "7.1";
+                default: break;
+            }
+        }
+        return channels + "ch";
+    }
+
+    /**
+     * The file being probed. The head is read once; other regions are served from it when they
+     * fall inside it and otherwise read into one scratch buffer that is reused for the whole probe.
+     */
+    private static final class Source {
+        private final FileChannel channel;
+        private final long size;
+        final ByteBuffer head;
+        private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+        Source(FileChannel channel, long size) throws IOException {
+            this.channel = channel;
+            this.size = size;
+            this.head = read(ByteBuffer.allocate((int) Math.min(HEAD_BYTES, size)), 0);
+        }
+
+        /** Up to {@code length} bytes at {@code position}, valid until the next call. */
+        ByteBuffer region(long position, int length) throws IOException {
+            int available = available(position, length);
+            if (position + available <= head.limit()) return head.slice((int) position, available);
+            if (scratch.capacity() < available) scratch = ByteBuffer.allocate(Math.max(available, scratch.capacity() * 2));
+            scratch.clear().limit(available);
+            return read(scratch.order(ByteOrder.BIG_ENDIAN), position);
+        }
+
+        /** Like {@link #region} but stays valid, for a region used while others are read. */
+        ByteBuffer copy(long position, int length) throws IOException {
+            int available = available(position, length);
+            if (position + available <= head.limit()) return head.slice((int) position, available);
+            return read(ByteBuffer.allocate(available), position);
+        }
+
+        private int available(long position, int length) {
+            return (int) Math.min(length, Math.max(0, size - position));
+        }
+
+        /** Fills {@code buf} from {@code position} and flips it; a file that shrank leaves it short. */
+        private ByteBuffer read(ByteBuffer buf, long position) throws IOException {
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, position + buf.position()) < 0) break;
+            }
+            return buf.flip();
+        }
+    }
+
+    private static int syncsafe(ByteBuffer buf, int offset) {
+        return ((buf.get(offset) & 0x7F) << 21) | ((buf.get(offset + 1) & 0x7F) << 14)
+            | ((buf.get(offset + 2) & 0x7F) << 7) | (buf.get(offset + 3) & 0x7F);
+    }
+
+    private static boolean matches(ByteBuffer buf, int offset, String magic) {
+        if (offset < 0 || offset + magic.length() > buf.limit()) return false;
+        for (int i = 0; i < magic.length(); i++) {
+            if (buf.get(offset + i) != (byte) magic.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static String ascii(ByteBuffer buf, int offset, int length) {
+        return decode(buf, offset, length, StandardCharsets.US_ASCII);
+    }
+
+    private static String decode(ByteBuffer buf, int offset, int length, Charset charset) {
+        byte[] bytes = new byte[length];
+        buf.get(offset, bytes);
+        return new String(bytes, charset);
+    }
+}
@@ -0,0 +1,360 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.check;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.isNull;
+
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.execution.InProcessTask;
+import io.github.kinsleykajiva.ffmpeg.model.EncodingResult;
+import io.github.kinsleykajiva.ffmpeg.model.PcmFormat;
+import io.github.kinsleykajiva.ffmpeg.model.SampleFormat;
+import io.github.kinsleykajiva.ffmpeg.model.TranscodeSpec;
+
+/**
+ * File-to-file audio transcoding inside the JVM.
+ * {@link AudioDecoder} produces PCM already converted to the encoder's sample format, rate and
+ * channel count; the samples are packed into frames of the encoder's frame size, encoded with
+ * {@code avcodec_send_frame}/{@code avcodec_receive_packet} and muxed with
+ * {@code av_interleaved_write_frame}. Like the ffmpeg CLI's default {@code -map_metadata 0}, the
+ * input's global tags are copied to the output before the spec's own tags are applied. Jobs are run through
+ * {@link io.github.kinsleykajiva.ffmpeg.execution.FFmpegExecutor} like process jobs, so they
+ * report progress and honour timeouts and the stop, kill and pause requests of their handle.
+ * Output goes to a file, or to a {@link JavaAvioSink} when streaming it without one.
+ */
+public final class InProcessTranscoder {
+
+    // Frame size used for encoders that accept any number of samples per frame (e.g. PCM).
+    private static final int VARIABLE_FRAME_SAMPLES = 4096;
+
+    private InProcessTranscoder() {}
+
+    /**
+     * True if the native libraries are loaded and provide an encoder and a muxer for the spec,
+     * i.e. {@link #task(TranscodeSpec)} can run it.
+     */
+    public static boolean canTranscode(TranscodeSpec spec) {
+        if (!FFmpeg.isNativeAvailable()) return false;
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment outputFormat = av_guess_format(cString(spec.outputFormat(), arena), cString(spec.outputPath(), arena), MemorySegment.NULL);
+            return !isNull(outputFormat) && !isNull(findEncoder(spec, outputFormat, arena));
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a task that performs the transcode when run by the executor.
+     */
+    public static InProcessTask task(TranscodeSpec spec) {
+        if (spec == null) {
+            throw new IllegalArgumentException("Transcode spec cannot be null.");
+        }
+        if (spec.outputPath() == null) {
+            throw new IllegalArgumentException("Spec has no output path; use task(spec, sink) to stream the output.");
+        }
+        return context -> new Job(spec, null, context).run();
+    }
+
+    /**
+     * Returns a task that muxes into {@code sink} instead of a file. The spec names the container
+     * through its output format (or a path whose extension is used only for that); the result
+     * has no output path and reports the bytes delivered to the sink as its size.
+     * The sink must stay open until the task has finished.
+     */
+    public static InProcessTask task(TranscodeSpec spec, JavaAvioSink sink) {
+        if (spec == null || sink == null) {
+            throw new IllegalArgumentException("Transcode spec and sink cannot be null.");
+        }
+        return context -> new Job(spec, sink, context).run();
+    }
+
+    private static MemorySegment cString(String value, Arena arena) {
+        return (value == null) ? MemorySegment.NULL : arena.allocateFrom(value);
+    }
+
+    private static MemorySegment findEncoder(TranscodeSpec spec, MemorySegment outputFormat, Arena arena) {
+        if (spec.codecName() != null) {
+            return avcodec_find_encoder_by_name(arena.allocateFrom(spec.codecName()));
+        }
+        int codecId = AVOutputFormat.audio_codec(outputFormat);
+        return (codecId == AV_CODEC_ID_NONE()) ? MemorySegment.NULL : avcodec_find_encoder(codecId);
+    }
+
+    /**
+     * One run of the pipeline; owns every native resource until {@link #run()} returns.
+     */
+    private static final class Job {
+        private final TranscodeSpec spec;
+        private final JavaAvioSink sink;
+        private final InProcessTask.Context context;
+        private final String output;
+        private final Arena arena = Arena.ofConfined();
+        private final MemorySegment formatHolder = arena.allocate(C_POINTER);
+        private final MemorySegment encoderHolder = arena.allocate(C_POINTER);
+        private final NativeObjectPool pool = NativeObjectPool.current();
+
+        private MemorySegment formatCtx = MemorySegment.NULL;
+        private MemorySegment encoderCtx = MemorySegment.NULL;
+        private MemorySegment frame = MemorySegment.NULL;
+        private MemorySegment packet = MemorySegment.NULL;
+        private MemorySegment stream;
+        private AudioDecoder decoder;
+        private boolean outputOpened;
+
+        private int sampleFormatId;
+        private int channels;
+        private int sampleRate;
+        private int frameSize;
+        private boolean variableFrameSize;
+        private boolean smallLastFrame;
+        private MemorySegment sourcePointers;
+        private int filled;
+        private long samplesSent;
+        private long bytesWritten;
+        private long startNanos;
+
+        Job(TranscodeSpec spec, JavaAvioSink sink, InProcessTask.Context context) {
+            this.spec = spec;
+            this.sink = sink;
+            this.context = context;
+            this.output = (sink != null) ? sink.toString() : new File(spec.outputPath()).getAbsolutePath();
+        }
+
+        EncodingResult run() {
+            startNanos = System.nanoTime();
+            try {
+                openOutput();
+                PcmChunk chunk;
+                while ((chunk = decoder.read()) != null) {
+                    if (!context.checkpoint()) break;
+                    append(chunk);
+                }
+                if (context.aborted()) {
+                    throw new ExecutionException(-1, "In-process job was killed before finishing: " + output);
+                }
+                finish();
+            } finally {
+                release();
+            }
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            if (sink != null) {
+                return new EncodingResult(null, elapsedMillis, sink.bytesWritten());
+            }
+            return new EncodingResult(Path.of(output), elapsedMillis, new File(output).length());
+        }
+
+        private void openOutput() {
+            MemorySegment fileName = (sink != null) ? cString(spec.outputPath(), arena) : arena.allocateFrom(output);
+            check(avformat_alloc_output_context2(formatHolder, MemorySegment.NULL, cString(spec.outputFormat(), arena), fileName),
+                "avformat_alloc_output_context2", output);
+            formatCtx = formatHolder.get(C_POINTER, 0);
+            MemorySegment outputFormat = AVFormatContext.oformat(formatCtx);
+            MemorySegment codec = findEncoder(spec, outputFormat, arena);
+            if (isNull(codec)) {
+                throw new ExecutionException(-1, "No encoder available for: " + output
+                    + (spec.codecName() != null ? " (" + spec.codecName() + ")" : ""));
+            }
+            encoderCtx = avcodec_alloc_context3(codec);
+            if (isNull(encoderCtx)) {
+                throw new ExecutionException(-1, "avcodec_alloc_context3 failed for: " + output);
+            }
+            encoderHolder.set(C_POINTER, 0, encoderCtx);
+
+            sampleFormatId = chooseSampleFormat(codec);
+            SampleFormat sampleFormat = NativeSupport.sampleFormat(sampleFormatId);
+            decoder = AudioDecoder.open(spec.inputPath(), new PcmFormat(sampleFormat, spec.sampleRate(), spec.channels()));
+            int rate = chooseSampleRate(codec, decoder.outputFormat().sampleRate());
+            if (rate != decoder.outputFormat().sampleRate()) {
+                // The encoder cannot take the source rate; decode again straight to a rate it supports.
+                decoder.close();
+                decoder = AudioDecoder.open(spec.inputPath(), new PcmFormat(sampleFormat, rate, spec.channels()));
+            }
+            sampleRate = decoder.outputFormat().sampleRate();
+            channels = decoder.outputFormat().channels();
+
+            AVCodecContext.sample_fmt(encoderCtx, sampleFormatId);
+            AVCodecContext.sample_rate(encoderCtx, sampleRate);
+            av_channel_layout_default(AVCodecContext.ch_layout(encoderCtx), channels);
+            if (spec.bitrate() > 0) AVCodecContext.bit_rate(encoderCtx, spec.bitrate());
+            MemorySegment timeBase = AVRational.allocate(arena);
+            AVRational.num(timeBase, 1);
+            AVRational.den(timeBase, sampleRate);
+            AVCodecContext.time_base(encoderCtx, timeBase);
+            if ((AVOutputFormat.flags(outputFormat) & AVFMT_GLOBALHEADER()) != 0) {
+                AVCodecContext.flags(encoderCtx, AVCodecContext.flags(encoderCtx) | AV_CODEC_FLAG_GLOBAL_HEADER());
+            }
+            if (spec.experimental()) {
+                // The in-process equivalent of -strict experimental.
+                AVCodecContext.strict_std_compliance(encoderCtx, FF_COMPLIANCE_EXPERIMENTAL());
+            }
+            check(avcodec_open2(encoderCtx, codec, MemorySegment.NULL), "avcodec_open2", output);
+
+            stream = avformat_new_stream(formatCtx, MemorySegment.NULL);
+            if (isNull(stream)) {
+                throw new ExecutionException(-1, "avformat_new_stream failed for: " + output);
+            }
+            check(avcodec_parameters_from_context(AVStream.codecpar(stream), encoderCtx), "avcodec_parameters_from_context", output);
+            AVStream.time_base(stream, timeBase);
+
+            MemorySegment metadata = formatCtx.asSlice(AVFormatContext.metadata$offset(), C_POINTER);
+            // Input tags first, as the CLI does by default; explicit tags then override them.
+            check(av_dict_copy(metadata, decoder.inputMetadata(), 0), "av_dict_copy", output);
+            for (Map.Entry<String, String> tag : spec.metadata().entrySet()) {
+                check(av_dict_set(metadata, arena.allocateFrom(tag.getKey()), arena.allocateFrom(tag.getValue()), 0),
+                    "av_dict_set", output);
+            }
+
+            if (sink != null) {
+                sink.attach(formatCtx);
+            } else if ((AVOutputFormat.flags(outputFormat) & AVFMT_NOFILE()) == 0) {
+                check(avio_open(formatCtx.asSlice(AVFormatContext.pb$offset(), C_POINTER), arena.allocateFrom(output), AVIO_FLAG_WRITE()),
+                    "avio_open", output);
+                outputOpened = true;
+            }
+            check(avformat_write_header(formatCtx, MemorySegment.NULL), "avformat_write_header", output);
+            // Get the container header to the client before the first packet is encoded.
+            if (sink != null) sink.flush();
+
+            int capabilities = AVCodec.capabilities(codec);
+            variableFrameSize = (capabilities & AV_CODEC_CAP_VARIABLE_FRAME_SIZE()) != 0;
+            smallLastFrame = (capabilities & AV_CODEC_CAP_SMALL_LAST_FRAME()) != 0;
+            frameSize = AVCodecContext.frame_size(encoderCtx);
+            if (frameSize <= 0 || variableFrameSize) frameSize = VARIABLE_FRAME_SAMPLES;
+
+            frame = pool.frame();
+            packet = pool.packet();
+            AVFrame.format(frame, sampleFormatId);
+            AVFrame.sample_rate(frame, sampleRate);
+            AVFrame.nb_samples(frame, frameSize);
+            check(av_channel_layout_copy(AVFrame.ch_layout(frame), AVCodecContext.ch_layout(encoderCtx)), "av_channel_layout_copy", output);
+            check(av_frame_get_buffer(frame, 0), "av_frame_get_buffer", output);
+            sourcePointers = arena.allocate(C_POINTER, channels);
+        }
+
+        /** The encoder's preferred sample format, or S16 when it does not restrict them. */
+        private int chooseSampleFormat(MemorySegment codec) {
+            MemorySegment formats = supportedConfig(codec, AV_CODEC_CONFIG_SAMPLE_FORMAT());
+            if (!isNull(formats)) {
+                for (int i = 0; ; i++) {
+                    int id = formats.getAtIndex(C_INT, i);
+                    if (id == AV_SAMPLE_FMT_NONE()) break;
+                    if (NativeSupport.sampleFormat(id) != null) return id;
+                }
+            }
+            return AV_SAMPLE_FMT_S16();
+        }
+
+        /** {@code wanted} if the encoder supports it, otherwise the nearest supported rate. */
+        private int chooseSampleRate(MemorySegment codec, int wanted) {
+            MemorySegment rates = supportedConfig(codec, AV_CODEC_CONFIG_SAMPLE_RATE());
+            if (isNull(rates)) return wanted;
+            int best = wanted;
+            long bestDistance = Long.MAX_VALUE;
+            for (int i = 0; ; i++) {
+                int rate = rates.getAtIndex(C_INT, i);
+                if (rate == 0) break;
+                if (rate == wanted) return wanted;
+                long distance = Math.abs((long) rate - wanted);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = rate;
+                }
+            }
+            return best;
+        }
+
+        /** The terminated list libavcodec returns for {@code config}, or NULL if anything goes. */
+        private MemorySegment supportedConfig(MemorySegment codec, int config) {
+            MemorySegment values = arena.allocate(C_POINTER);
+            check(avcodec_get_supported_config(encoderCtx, codec, config, 0, values, MemorySegment.NULL),
+                "avcodec_get_supported_config", output);
+            return values.get(C_POINTER, 0);
+        }
+
+        private void append(PcmChunk chunk) {
+            List<MemorySegment> planes = chunk.planes();
+            for (int i = 0; i < planes.size(); i++) {
+                sourcePointers.setAtIndex(C_POINTER, i, planes.get(i));
+            }
+            int offset = 0;
+            while (offset < chunk.samples()) {
+                if (filled == 0) {
+                    // The encoder may still hold a reference to the previous frame's buffers.
+                    check(av_frame_make_writable(frame), "av_frame_make_writable", output);
+                }
+                int count = Math.min(frameSize - filled, chunk.samples() - offset);
+                check(av_samples_copy(AVFrame.extended_data(frame), sourcePointers, filled, offset, count, channels, sampleFormatId),
+                    "av_samples_copy", output);
+                filled += count;
+                offset += count;
+                if (filled == frameSize) {
+                    sendFrame(frameSize);
+                }
+            }
+        }
+
+        private void finish() {
+            if (filled > 0) {
+                if (variableFrameSize || smallLastFrame) {
+                    sendFrame(filled);
+                } else {
+                    // Encoders with a fixed frame size need the last frame padded with silence.
+                    check(av_samples_set_silence(AVFrame.extended_data(frame), filled, frameSize - filled, channels, sampleFormatId),
+                        "av_samples_set_silence", output);
+                    sendFrame(frameSize);
+                }
+            }
+            encode(MemorySegment.NULL);
+            check(av_write_trailer(formatCtx), "av_write_trailer", output);
+        }
+
+        private void sendFrame(int samples) {
+            AVFrame.nb_samples(frame, samples);
+            AVFrame.pts(frame, samplesSent);
+            encode(frame);
+            samplesSent += samples;
+            filled = 0;
+
+            long outTimeUs = samplesSent * 1_000_000L / sampleRate;
+            long elapsedNanos = System.nanoTime() - startNanos;
+            double speed = (elapsedNanos > 0) ? outTimeUs * 1_000.0 / elapsedNanos : 0;
+            context.progress(outTimeUs, bytesWritten, speed);
+        }
+
+        /** Sends a frame (NULL to flush) and muxes every packet the encoder has ready. */
+        private void encode(MemorySegment input) {
+            check(avcodec_send_frame(encoderCtx, input), "avcodec_send_frame", output);
+            while (true) {
+                int ret = avcodec_receive_packet(encoderCtx, packet);
+                if (ret == NativeSupport.AVERROR_EAGAIN || ret == AVERROR_EOF()) return;
+                check(ret, "avcodec_receive_packet", output);
+                AVPacket.stream_index(packet, AVStream.index(stream));
+                // Muxers may change the stream time base in avformat_write_header.
+                av_packet_rescale_ts(packet, AVCodecContext.time_base(encoderCtx), AVStream.time_base(stream));
+                bytesWritten += AVPacket.size(packet);
+                // Takes ownership of the packet's data and leaves it blank for the next receive.
+                check(av_interleaved_write_frame(formatCtx, packet), "av_interleaved_write_frame", output);
+            }
+        }
+
+        private void release() {
+            if (decoder != null) decoder.close();
+            pool.release(frame);
+            pool.release(packet);
+            if (!isNull(encoderCtx)) avcodec_free_context(encoderHolder);
+            if (!isNull(formatCtx)) {
+                if (outputOpened) avio_closep(formatCtx.asSlice(AVFormatContext.pb$offset(), C_POINTER));
+                avformat_free_context(formatCtx);
+            }
+            arena.close();
+        }
+    }
+}
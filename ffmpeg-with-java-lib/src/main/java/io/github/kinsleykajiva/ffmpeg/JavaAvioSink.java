@@ -0,0 +1,323 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.isNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+
+/**
+ * Receives muxed output in Java instead of a file, through a custom {@code AVIOContext} whose
+ * {@code write_packet} callback is an upcall into this class. Pass it to
+ * {@link InProcessTranscoder#task(io.github.kinsleykajiva.ffmpeg.model.TranscodeSpec, JavaAvioSink)}
+ * to stream encoded audio to an HTTP response, a socket or a reactive publisher as it is
+ * produced; packets are flushed as soon as they are muxed, so the first bytes leave after the
+ * first encoded frame.
+ * Containers that rewrite their header at the end (MP4, WAV sizes) need a seekable sink, i.e. a
+ * {@link SeekableByteChannel}; streamable ones (MP3, ADTS, Ogg, FLAC, Matroska) work with any sink.
+ * Closing the sink does not close the underlying stream or channel.
+ *
+ * <pre>{@code
+ * try (JavaAvioSink sink = JavaAvioSink.of(response.getOutputStream())) {
+ *     FFmpegExecutor.execute(InProcessTranscoder.task(spec, sink), null, null, ExecutionOptions.defaults());
+ * }
+ * }</pre>
+ */
+public final class JavaAvioSink implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    private final Output output;
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment contextHolder = arena.allocate(C_POINTER);
+    private MemorySegment context = MemorySegment.NULL;
+    private volatile long bytesWritten;
+    // Where the next write lands; only differs from bytesWritten after a seek back into the output.
+    private long position;
+    private volatile IOException failure;
+    private boolean closed;
+
+    private JavaAvioSink(Output output) {
+        this.output = output;
+    }
+
+    /**
+     * Writes to a channel; if it is a {@link SeekableByteChannel} the muxer may also seek back
+     * to patch headers. A seekable channel is written from its current position, which the muxer
+     * sees as offset 0, so bytes already before it are never overwritten.
+     *
+     * @throws ExecutionException if a seekable channel's position cannot be read
+     */
+    public static JavaAvioSink of(WritableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null.");
+        }
+        long start = 0;
+        if (channel instanceof SeekableByteChannel seekable) {
+            try {
+                start = seekable.position();
+            } catch (IOException e) {
+                throw new ExecutionException(-1, "Cannot read channel position: " + channel + " (" + e.getMessage() + ")", e);
+            }
+        }
+        return create(new ChannelOutput(channel, start));
+    }
+
+    /**
+     * Writes to a stream. The output is not seekable.
+     */
+    public static JavaAvioSink of(OutputStream stream) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Output stream cannot be null.");
+        }
+        return create(new StreamOutput(stream));
+    }
+
+    /**
+     * Hands each written block to {@code consumer} as a read-only buffer over native memory.
+     * The buffer is only valid during the call; copy it (e.g. into a Netty {@code ByteBuf} or a
+     * {@code byte[]} for a reactive subscriber) to keep the data. The output is not seekable.
+     */
+    public static JavaAvioSink of(Consumer<ByteBuffer> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer cannot be null.");
+        }
+        return create(new ConsumerOutput(consumer));
+    }
+
+    private static JavaAvioSink create(Output output) {
+        NativeSupport.requireNative("custom AVIO output");
+        JavaAvioSink sink = new JavaAvioSink(output);
+        try {
+            sink.init();
+        } catch (RuntimeException e) {
+            sink.close();
+            throw e;
+        }
+        return sink;
+    }
+
+    private void init() {
+        MemorySegment buffer = av_malloc(BUFFER_SIZE);
+        if (isNull(buffer)) {
+            throw new ExecutionException(-1, "av_malloc failed for the AVIO buffer");
+        }
+        MemorySegment write = avio_alloc_context$write_packet.allocate(this::writePacket, arena);
+        MemorySegment seek = output.seekable()
+            ? avio_alloc_context$seek.allocate(this::seek, arena)
+            : MemorySegment.NULL;
+        context = avio_alloc_context(buffer, BUFFER_SIZE, 1, MemorySegment.NULL, MemorySegment.NULL, write, seek);
+        if (isNull(context)) {
+            av_free(buffer);
+            throw new ExecutionException(-1, "avio_alloc_context failed");
+        }
+        contextHolder.set(C_POINTER, 0, context);
+    }
+
+    /**
+     * Size of the output produced so far: the end of the furthest byte written, so header
+     * rewrites after a seek are not counted twice.
+     */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * The exception thrown by the underlying channel, stream or consumer during the last failed
+     * write or seek, or null. libavformat only sees a generic I/O error.
+     */
+    public IOException failure() {
+        return failure;
+    }
+
+    /**
+     * Attaches this sink to an output {@code AVFormatContext} in place of {@code avio_open},
+     * with packet flushing so output is delivered as soon as it is muxed.
+     */
+    void attach(MemorySegment formatCtx) {
+        if (closed) {
+            throw new IllegalStateException("Sink is closed.");
+        }
+        AVFormatContext.pb(formatCtx, context);
+        AVFormatContext.flags(formatCtx,
+            AVFormatContext.flags(formatCtx) | AVFMT_FLAG_CUSTOM_IO() | AVFMT_FLAG_FLUSH_PACKETS());
+    }
+
+    /** Pushes anything still buffered in the AVIO context to the output. */
+    void flush() {
+        avio_flush(context);
+    }
+
+    @Override
+    public String toString() {
+        return "avio:" + output;
+    }
+
+    // Upcalls must never throw into native code: failures are recorded and reported as AVERROR(EIO).
+
+    private int writePacket(MemorySegment opaque, MemorySegment buf, int size) {
+        try {
+            output.write(buf.asSlice(0, size));
+            position += size;
+            if (position > bytesWritten) bytesWritten = position;
+            return size;
+        } catch (IOException e) {
+            failure = e;
+            return -EIO();
+        } catch (Throwable t) {
+            failure = new IOException(t);
+            return -EIO();
+        }
+    }
+
+    private long seek(MemorySegment opaque, long offset, int whence) {
+        try {
+            ChannelOutput channelOutput = (ChannelOutput) output;
+            SeekableByteChannel channel = channelOutput.seekable;
+            // Offsets are relative to where the output started in the channel.
+            long start = channelOutput.start;
+            if ((whence & AVSEEK_SIZE()) != 0) {
+                return Math.max(0, channel.size() - start);
+            }
+            int origin = whence & ~AVSEEK_FORCE();
+            long base;
+            if (origin == SEEK_SET()) {
+                base = 0;
+            } else if (origin == SEEK_CUR()) {
+                base = position;
+            } else if (origin == SEEK_END()) {
+                base = Math.max(0, channel.size() - start);
+            } else {
+                return -EIO();
+            }
+            long target = base + offset;
+            if (target < 0) return -EIO();
+            channel.position(start + target);
+            position = target;
+            return target;
+        } catch (IOException e) {
+            failure = e;
+            return -EIO();
+        } catch (Throwable t) {
+            failure = new IOException(t);
+            return -EIO();
+        }
+    }
+
+    /**
+     * Frees the AVIO context and the upcall stubs. The muxer using this sink must be finished
+     * or freed first.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (!isNull(context)) {
+            // libavformat may have replaced the buffer passed to avio_alloc_context.
+            av_freep(context.asSlice(AVIOContext.buffer$offset(), C_POINTER));
+            avio_context_free(contextHolder);
+        }
+        arena.close();
+    }
+
+    /**
+     * Where the bytes go.
+     */
+    private interface Output {
+        void write(MemorySegment data) throws IOException;
+
+        boolean seekable();
+    }
+
+    private static final class ChannelOutput implements Output {
+        private final WritableByteChannel channel;
+        private final SeekableByteChannel seekable;
+        // Channel position of the output's first byte; 0 for channels that cannot seek.
+        private final long start;
+
+        ChannelOutput(WritableByteChannel channel, long start) {
+            this.channel = channel;
+            this.seekable = (channel instanceof SeekableByteChannel s) ? s : null;
+            this.start = start;
+        }
+
+        @Override
+        public void write(MemorySegment data) throws IOException {
+            ByteBuffer source = data.asByteBuffer();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        @Override
+        public boolean seekable() {
+            return seekable != null;
+        }
+
+        @Override
+        public String toString() {
+            return channel.toString();
+        }
+    }
+
+    private static final class StreamOutput implements Output {
+        private final OutputStream stream;
+        private byte[] scratch = new byte[0];
+
+        StreamOutput(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(MemorySegment data) throws IOException {
+            int size = (int) data.byteSize();
+            if (scratch.length < size) scratch = new byte[size];
+            MemorySegment.copy(data, ValueLayout.JAVA_BYTE, 0, scratch, 0, size);
+            stream.write(scratch, 0, size);
+            // The muxer flushes per packet; pass that on so data is not held in Java buffers.
+            stream.flush();
+        }
+
+        @Override
+        public boolean seekable() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return stream.toString();
+        }
+    }
+
+    private static final class ConsumerOutput implements Output {
+        private final Consumer<ByteBuffer> consumer;
+
+        ConsumerOutput(Consumer<ByteBuffer> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void write(MemorySegment data) {
+            consumer.accept(data.asByteBuffer().asReadOnlyBuffer());
+        }
+
+        @Override
+        public boolean seekable() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return consumer.toString();
+        }
+    }
+}
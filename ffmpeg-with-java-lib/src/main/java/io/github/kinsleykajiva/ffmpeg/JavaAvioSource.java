@@ -0,0 +1,410 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.isNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+
+/**
+ * Feeds libavformat from Java instead of a file path, through a custom {@code AVIOContext}
+ * whose {@code read_packet} and {@code seek} callbacks are upcalls into this class.
+ * In-memory uploads can be probed with {@link PanamaProber#probe(JavaAvioSource, io.github.kinsleykajiva.ffmpeg.model.ProbeOptions)}
+ * or decoded with {@link AudioDecoder#open(JavaAvioSource, io.github.kinsleykajiva.ffmpeg.model.PcmFormat)}
+ * without writing them to a temporary file first, and local files can be read through a
+ * memory mapping with {@link #map(Path)}.
+ * A source backs one open input and must stay open until that input is closed. Closing the
+ * source does not close the underlying stream or channel.
+ *
+ * <pre>{@code
+ * try (JavaAvioSource source = JavaAvioSource.of(uploadBuffer)) {
+ *     AudioMetadata metadata = PanamaProber.probe(source);
+ * }
+ * }</pre>
+ */
+public final class JavaAvioSource implements AutoCloseable {
+
+    private static final int SEEKABLE_BUFFER_SIZE = 64 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 32 * 1024;
+
+    private final Input input;
+    private final Arena arena;
+    private final MemorySegment contextHolder;
+    private MemorySegment context = MemorySegment.NULL;
+    private volatile IOException failure;
+    private boolean closed;
+
+    private JavaAvioSource(Arena arena, Input input) {
+        this.arena = arena;
+        this.input = input;
+        this.contextHolder = arena.allocate(C_POINTER);
+    }
+
+    /**
+     * Reads the remaining bytes of {@code buffer} (from its position to its limit) without
+     * copying them first. The buffer's own position is not changed.
+     */
+    public static JavaAvioSource of(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer cannot be null.");
+        }
+        return create(Arena.ofShared(), new SegmentInput(MemorySegment.ofBuffer(buffer), "buffer"));
+    }
+
+    /**
+     * Reads from a seekable channel starting at its current position, which libavformat then sees
+     * as offset 0 (e.g. a file embedded in a larger archive); formats that need random access
+     * (MP4, some WAV and FLAC layouts) work.
+     *
+     * @throws ExecutionException if the channel's position cannot be read
+     */
+    public static JavaAvioSource of(SeekableByteChannel channel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null.");
+        }
+        long start;
+        try {
+            start = channel.position();
+        } catch (IOException e) {
+            throw new ExecutionException(-1, "Cannot read channel position: " + channel + " (" + e.getMessage() + ")", e);
+        }
+        return create(Arena.ofShared(), new ChannelInput(channel, start));
+    }
+
+    /**
+     * Reads from a stream. The input is not seekable, so containers that keep their index at the
+     * end of the file may not open; prefer a buffer or channel for those.
+     */
+    public static JavaAvioSource of(InputStream stream) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Input stream cannot be null.");
+        }
+        return create(Arena.ofShared(), new StreamInput(stream));
+    }
+
+    /**
+     * Maps a local file into memory and reads it from the mapping: each {@code read_packet}
+     * is a {@code MemorySegment.copy} out of the page cache and each seek only moves an offset,
+     * so random-access work such as clip extraction makes no read or seek syscalls.
+     * The mapping is released when the source is closed.
+     *
+     * @throws ExecutionException if the file cannot be opened or mapped
+     */
+    public static JavaAvioSource map(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        NativeSupport.requireNative("custom AVIO input");
+        Arena arena = Arena.ofShared();
+        MemorySegment mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping belongs to the arena and outlives the channel.
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw new ExecutionException(-1, "Cannot map file: " + file + " (" + e.getMessage() + ")");
+        }
+        return create(arena, new SegmentInput(mapping, file.toString()));
+    }
+
+    private static JavaAvioSource create(Arena arena, Input input) {
+        NativeSupport.requireNative("custom AVIO input");
+        JavaAvioSource source = new JavaAvioSource(arena, input);
+        try {
+            source.init();
+        } catch (RuntimeException e) {
+            source.close();
+            throw e;
+        }
+        return source;
+    }
+
+    private void init() {
+        int bufferSize = input.seekable() ? SEEKABLE_BUFFER_SIZE : STREAM_BUFFER_SIZE;
+        MemorySegment buffer = av_malloc(bufferSize);
+        if (isNull(buffer)) {
+            throw new ExecutionException(-1, "av_malloc failed for the AVIO buffer");
+        }
+        MemorySegment read = avio_alloc_context$read_packet.allocate(this::readPacket, arena);
+        MemorySegment seek = input.seekable()
+            ? avio_alloc_context$seek.allocate(this::seek, arena)
+            : MemorySegment.NULL;
+        context = avio_alloc_context(buffer, bufferSize, 0, MemorySegment.NULL, read, MemorySegment.NULL, seek);
+        if (isNull(context)) {
+            av_free(buffer);
+            throw new ExecutionException(-1, "avio_alloc_context failed");
+        }
+        contextHolder.set(C_POINTER, 0, context);
+    }
+
+    /**
+     * The exception thrown by the underlying buffer, channel or stream during the last failed
+     * read or seek, or null. libavformat only sees a generic I/O error.
+     */
+    public IOException failure() {
+        return failure;
+    }
+
+    /**
+     * Opens {@code formatHolder} (an {@code AVFormatContext**}) on this source, as
+     * {@code avformat_open_input} does for a URL. On failure libavformat frees the context.
+     */
+    int openInput(MemorySegment formatHolder) {
+        if (closed) {
+            throw new IllegalStateException("Source is closed.");
+        }
+        MemorySegment formatCtx = avformat_alloc_context();
+        if (isNull(formatCtx)) {
+            throw new ExecutionException(-1, "avformat_alloc_context failed");
+        }
+        AVFormatContext.pb(formatCtx, context);
+        // Keeps avformat_close_input from closing a context it did not open.
+        AVFormatContext.flags(formatCtx, AVFormatContext.flags(formatCtx) | AVFMT_FLAG_CUSTOM_IO());
+        formatHolder.set(C_POINTER, 0, formatCtx);
+        return avformat_open_input(formatHolder, MemorySegment.NULL, MemorySegment.NULL, MemorySegment.NULL);
+    }
+
+    /** Total input size in bytes, or -1 if unknown. */
+    long size() {
+        try {
+            return input.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "avio:" + input;
+    }
+
+    // Upcalls must never throw into native code: failures are recorded and reported as AVERROR(EIO).
+
+    private int readPacket(MemorySegment opaque, MemorySegment buf, int size) {
+        try {
+            // C_POINTER's target layout makes buf addressable; bound it to what libavformat offers.
+            int read = input.read(buf.asSlice(0, size));
+            return (read < 0) ? AVERROR_EOF() : read;
+        } catch (IOException e) {
+            failure = e;
+            return -EIO();
+        } catch (Throwable t) {
+            failure = new IOException(t);
+            return -EIO();
+        }
+    }
+
+    private long seek(MemorySegment opaque, long offset, int whence) {
+        try {
+            if ((whence & AVSEEK_SIZE()) != 0) {
+                return input.size();
+            }
+            int origin = whence & ~AVSEEK_FORCE();
+            long base;
+            if (origin == SEEK_SET()) {
+                base = 0;
+            } else if (origin == SEEK_CUR()) {
+                base = input.position();
+            } else if (origin == SEEK_END()) {
+                base = input.size();
+                if (base < 0) return -EIO();
+            } else {
+                return -EIO();
+            }
+            long target = base + offset;
+            if (target < 0) return -EIO();
+            input.position(target);
+            return target;
+        } catch (IOException e) {
+            failure = e;
+            return -EIO();
+        } catch (Throwable t) {
+            failure = new IOException(t);
+            return -EIO();
+        }
+    }
+
+    /**
+     * Frees the AVIO context and the upcall stubs. Any input opened on this source must be
+     * closed first.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (!isNull(context)) {
+            // libavformat may have replaced the buffer passed to avio_alloc_context.
+            av_freep(context.asSlice(AVIOContext.buffer$offset(), C_POINTER));
+            avio_context_free(contextHolder);
+        }
+        arena.close();
+    }
+
+    /**
+     * Where the bytes come from.
+     */
+    private interface Input {
+        /** Fills {@code dst} as far as possible; returns the byte count, or -1 at end of input. */
+        int read(MemorySegment dst) throws IOException;
+
+        long position() throws IOException;
+
+        void position(long position) throws IOException;
+
+        /** -1 if unknown. */
+        long size() throws IOException;
+
+        boolean seekable();
+    }
+
+    /** Bytes already addressable as a segment; reads are copies and seeks are arithmetic. */
+    private static final class SegmentInput implements Input {
+        private final MemorySegment data;
+        private final String label;
+        private long position;
+
+        SegmentInput(MemorySegment data, String label) {
+            this.data = data;
+            this.label = label;
+        }
+
+        @Override
+        public int read(MemorySegment dst) {
+            long remaining = data.byteSize() - position;
+            if (remaining <= 0) return -1;
+            int count = (int) Math.min(remaining, dst.byteSize());
+            MemorySegment.copy(data, position, dst, 0, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public void position(long position) {
+            // Past-the-end is allowed, as for files; the next read reports end of input.
+            this.position = position;
+        }
+
+        @Override
+        public long size() {
+            return data.byteSize();
+        }
+
+        @Override
+        public boolean seekable() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** Offsets are relative to the channel position the source was created at. */
+    private static final class ChannelInput implements Input {
+        private final SeekableByteChannel channel;
+        private final long start;
+
+        ChannelInput(SeekableByteChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+        }
+
+        @Override
+        public int read(MemorySegment dst) throws IOException {
+            ByteBuffer target = dst.asByteBuffer();
+            int read;
+            do {
+                read = channel.read(target);
+            } while (read == 0 && target.hasRemaining());
+            return read;
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position() - start;
+        }
+
+        @Override
+        public void position(long position) throws IOException {
+            channel.position(start + position);
+        }
+
+        @Override
+        public long size() throws IOException {
+            return Math.max(0, channel.size() - start);
+        }
+
+        @Override
+        public boolean seekable() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return channel.toString();
+        }
+    }
+
+    private static final class StreamInput implements Input {
+        private final InputStream stream;
+        private byte[] scratch = new byte[0];
+        private long position;
+
+        StreamInput(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public int read(MemorySegment dst) throws IOException {
+            int size = (int) dst.byteSize();
+            if (scratch.length < size) scratch = new byte[size];
+            int read = stream.read(scratch, 0, size);
+            if (read > 0) {
+                MemorySegment.copy(scratch, 0, dst, ValueLayout.JAVA_BYTE, 0, read);
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public void position(long position) throws IOException {
+            throw new IOException("Input stream is not seekable.");
+        }
+
+        @Override
+        public long size() {
+            return -1;
+        }
+
+        @Override
+        public boolean seekable() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return stream.toString();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the FFmpeg shared libraries behind the Panama bindings on first use instead of when
+ * {@link FFmpeg} is initialised, so callers that only use the CLI never pay for the search.
+ * Libraries on {@code java.library.path} are loaded directly. As soon as one is not, the
+ * directory searches for every library start in parallel on daemon threads, and loading
+ * (which must follow dependency order) only waits for the result it needs next.
+ * Resolved absolute paths are memoised per search root, so a retry after
+ * {@link FFmpeg#setBinPath(String)} only searches the new directory, and recorded in the
+ * {@link ResolutionManifest} so later JVMs can skip the search entirely. A file that fails to load
+ * (wrong architecture, missing dependency) is dropped from both and the search goes on to the
+ * next directory that has the library.
+ */
+final class NativeLibraries {
+
+    // In dependency order: each library only links against those before it.
+    private static final String[] REQUIRED_LIBS = {"avutil-60", "swresample-6", "avcodec-62", "avformat-62", "swscale-9", "avfilter-11"};
+    private static final String[] OPTIONAL_LIBS = {"avdevice-62"};
+
+    private static final String[] LINUX_SYSTEM_LIB_PATHS = {
+        "/usr/lib/x86_64-linux-gnu",
+        "/usr/lib64",
+        "/usr/lib",
+        "/usr/local/lib",
+        "/usr/local/lib64",
+        "/usr/lib/aarch64-linux-gnu"
+    };
+
+    private static final ExecutorService RESOLVER = Executors.newCachedThreadPool(
+        Thread.ofPlatform().name("ffmpeg-lib-resolver-", 0).daemon().factory());
+
+    // Keyed by search root and library name; empty when the library was searched for and not found.
+    private static final Map<String, Optional<String>> RESOLVED = new ConcurrentHashMap<>();
+
+    private static volatile boolean loaded;
+    // The current (or last) loading attempt; guarded by the class lock.
+    private static CompletableFuture<Boolean> attempt;
+
+    private NativeLibraries() {}
+
+    /**
+     * Loads the libraries if no attempt has been made yet, waiting for a running attempt.
+     *
+     * @return true if the libraries are loaded
+     */
+    static boolean ensureLoaded() {
+        if (loaded) return true;
+        return start().join();
+    }
+
+    /**
+     * Whether the libraries are already loaded; unlike {@link #ensureLoaded()} this never starts
+     * or waits for a load.
+     */
+    static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Starts loading in the background if it has not started yet.
+     */
+    static synchronized CompletableFuture<Boolean> start() {
+        if (attempt == null) {
+            attempt = CompletableFuture.supplyAsync(NativeLibraries::loadAll, RESOLVER);
+        }
+        return attempt;
+    }
+
+    /**
+     * Makes a failed (or still running) attempt try again afterwards, e.g. with a new bin path.
+     * Before the first attempt this does nothing; the next use picks the new path up anyway.
+     */
+    static synchronized void retry() {
+        if (loaded || attempt == null) return;
+        attempt = attempt.thenApplyAsync(ok -> ok || loadAll(), RESOLVER);
+    }
+
+    private static boolean loadAll() {
+        File binDir = fallbackBinDir();
+        Map<String, CompletableFuture<Optional<String>>> located = new HashMap<>();
+
+        for (String lib : REQUIRED_LIBS) {
+            if (!load(lib, binDir, located)) {
+                // Non-fatal: Panama features are unavailable, but CLI-based features work fine
+                System.err.println("[FFmpeg] Native libraries not loaded. Panama features unavailable.");
+                System.err.println("[FFmpeg] CLI-based features (probe, transcode, stream) are fully operational.");
+                return false;
+            }
+        }
+        // Best-effort
+        for (String lib : OPTIONAL_LIBS) {
+            load(lib, binDir, located);
+        }
+        loaded = true;
+        return true;
+    }
+
+    private static boolean load(String lib, File binDir, Map<String, CompletableFuture<Optional<String>>> located) {
+        try {
+            System.loadLibrary(lib);
+            return true;
+        } catch (UnsatisfiedLinkError e) {
+            // fall through to the directory search
+        }
+        if (located.isEmpty()) {
+            // The first miss usually means none are on java.library.path: search for all at once.
+            for (String name : REQUIRED_LIBS) located.put(name, locateAsync(name, binDir));
+            for (String name : OPTIONAL_LIBS) located.put(name, locateAsync(name, binDir));
+        }
+        Optional<String> path = located.get(lib).join();
+        Set<String> rejected = new HashSet<>();
+        while (path.isPresent()) {
+            try {
+                System.load(path.get());
+                RESOLVED.put(key(lib, binDir), path);
+                return true;
+            } catch (UnsatisfiedLinkError e) {
+                // Wrong architecture, missing dependency or stale file: forget it, here and in the
+                // manifest, and go on to the next directory that has the library.
+                rejected.add(path.get());
+                RESOLVED.remove(key(lib, binDir));
+                FFmpegBinary.forgetLibrary(lib);
+                path = Optional.ofNullable(locateRecorded(lib, binDir, rejected));
+            }
+        }
+        return false;
+    }
+
+    private static CompletableFuture<Optional<String>> locateAsync(String lib, File binDir) {
+        return CompletableFuture.supplyAsync(
+            () -> RESOLVED.computeIfAbsent(key(lib, binDir), k -> Optional.ofNullable(locateRecorded(lib, binDir, Set.of()))),
+            RESOLVER);
+    }
+
+    /** The recorded library file, or else the first one found that is not in {@code rejected}. */
+    private static String locateRecorded(String lib, File binDir, Set<String> rejected) {
+        File recorded = FFmpegBinary.resolvedLibrary(lib);
+        if (recorded != null && !rejected.contains(recorded.getAbsolutePath())) return recorded.getAbsolutePath();
+        List<File> searched = new ArrayList<>();
+        String found = locate(lib, binDir, searched, rejected);
+        if (found != null) FFmpegBinary.recordLibrary(lib, new File(found), searched);
+        return found;
+    }
+
+    private static String key(String lib, File binDir) {
+        return (binDir != null ? binDir.getAbsolutePath() : "") + File.pathSeparator + lib;
+    }
+
+    /**
+     * Absolute path of the library file in the bin directory or, on Linux, the system library
+     * directories, skipping files that already failed to load.
+     */
+    private static String locate(String lib, File binDir, List<File> searched, Set<String> rejected) {
+        String libFilename = FFmpegBinary.getLibraryFilename(lib);
+
+        if (binDir != null) {
+            File found = accept(FFmpegBinary.findFile(binDir, libFilename, searched), rejected);
+            if (found != null) return found.getAbsolutePath();
+        }
+
+        if (FFmpegBinary.getCurrentOS() == FFmpegBinary.OS.LINUX) {
+            for (String path : LINUX_SYSTEM_LIB_PATHS) {
+                File sysDir = new File(path);
+                if (!sysDir.isDirectory()) {
+                    searched.add(sysDir); // a directory created later may hold the library
+                    continue;
+                }
+                // 1. Try exact (or prefix versioned)
+                File found = accept(FFmpegBinary.findFile(sysDir, libFilename, searched), rejected);
+                // 2. Try base name fallback if exact fails
+                if (found == null && libFilename.contains(".so.")) {
+                    found = accept(FFmpegBinary.findFile(sysDir,
+                        libFilename.substring(0, libFilename.indexOf(".so") + 3), searched), rejected);
+                }
+                if (found != null) return found.getAbsolutePath();
+            }
+        }
+        return null;
+    }
+
+    private static File accept(File found, Set<String> rejected) {
+        return (found == null || rejected.contains(found.getAbsolutePath())) ? null : found;
+    }
+
+    private static File fallbackBinDir() {
+        // 1. Check custom path if set
+        if (FFmpegBinary.getBinPath() != null) {
+            return new File(FFmpegBinary.getBinPath());
+        }
+
+        // 2. Fall back to auto-detection (searching up the tree for ffmpeg-builds)
+        try {
+            java.net.URL codeSource = FFmpeg.class.getProtectionDomain().getCodeSource().getLocation();
+            File dir = new File(codeSource.toURI());
+            for (int i = 0; i < 6; i++) {
+                File candidate = new File(dir, "ffmpeg-builds");
+                if (candidate.exists()) return candidate;
+                dir = dir.getParentFile();
+                if (dir == null) break;
+            }
+        } catch (Exception ignored) {}
+        return null;
+    }
+}
@@ -0,0 +1,288 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes libav's {@code av_log} output from in-process work (probing, decoding, transcoding)
+ * into Java instead of the process's stderr.
+ * One upcall is registered with {@code av_log_set_callback}. libav hands every message to a
+ * custom callback whatever its level, so the threshold is checked first thing in the upcall:
+ * a filtered message costs the upcall and one comparison, and is never formatted. Each
+ * message is formatted with {@code av_log_format_line2} into a per-thread native buffer and
+ * decoded into a per-thread character buffer, so delivering a line allocates nothing.
+ * Consecutive repeats of a line are collapsed and the total rate is capped, so a corrupt file
+ * emitting thousands of errors a second produces a handful of log lines and a summary. A run
+ * of repeats is reported once a second while it lasts, when a different line follows, or on
+ * {@link #uninstall()}.
+ *
+ * <pre>{@code
+ * NativeLog.install((level, line) -> log.warn("[libav] {}", line), NativeLog.Level.WARNING, 50);
+ * }</pre>
+ */
+public final class NativeLog {
+
+    /**
+     * libav log levels, from least to most verbose.
+     */
+    public enum Level {
+        QUIET, PANIC, FATAL, ERROR, WARNING, INFO, VERBOSE, DEBUG, TRACE;
+
+        int avLevel() {
+            return switch (this) {
+                case QUIET -> AV_LOG_QUIET();
+                case PANIC -> AV_LOG_PANIC();
+                case FATAL -> AV_LOG_FATAL();
+                case ERROR -> AV_LOG_ERROR();
+                case WARNING -> AV_LOG_WARNING();
+                case INFO -> AV_LOG_INFO();
+                case VERBOSE -> AV_LOG_VERBOSE();
+                case DEBUG -> AV_LOG_DEBUG();
+                case TRACE -> AV_LOG_TRACE();
+            };
+        }
+
+        static Level of(int avLevel) {
+            // Levels are spaced apart; anything between two named levels belongs to the more severe one.
+            for (Level level : values()) {
+                if (level != QUIET && avLevel <= level.avLevel()) return level;
+            }
+            return TRACE;
+        }
+    }
+
+    /**
+     * Receives native log lines.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * Called on the thread that logged, which may be a libav worker thread. {@code line}
+         * has no trailing newline and is only valid during the call; call {@code toString()}
+         * to keep it. Must not throw; exceptions are discarded.
+         */
+        void log(Level level, CharSequence line);
+    }
+
+    private static final int LINE_BUFFER_SIZE = 1024;
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private static final MemorySegment CALLBACK =
+        av_log_set_callback$callback.allocate(NativeLog::callback, Arena.global());
+    // Every thread's buffer, so uninstall() can report their pending repeats; dead threads drop out.
+    private static final Map<LineBuffer, Boolean> BUFFERS = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ThreadLocal<LineBuffer> LINES = ThreadLocal.withInitial(() -> {
+        LineBuffer buffer = new LineBuffer();
+        BUFFERS.put(buffer, Boolean.TRUE);
+        return buffer;
+    });
+
+    private static volatile Sink sink;
+    private static volatile int threshold;
+    private static volatile int maxLinesPerSecond;
+    private static final AtomicLong suppressed = new AtomicLong();
+
+    // Fixed one-second window for the rate cap.
+    private static long windowStart;
+    private static int windowCount;
+    private static long windowSuppressed;
+
+    private NativeLog() {}
+
+    /**
+     * Routes native log output at {@code threshold} or more severe to {@code sink}, at most
+     * {@code maxLinesPerSecond} lines per second (0 for no cap). Replaces any previous sink.
+     *
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException if the native libraries are not loaded
+     */
+    public static synchronized void install(Sink sink, Level threshold, int maxLinesPerSecond) {
+        if (sink == null || threshold == null) {
+            throw new IllegalArgumentException("Sink and threshold cannot be null.");
+        }
+        if (maxLinesPerSecond < 0) {
+            throw new IllegalArgumentException("Line rate cannot be negative. Provided: " + maxLinesPerSecond);
+        }
+        NativeSupport.requireNative("native log routing");
+        NativeLog.threshold = threshold.avLevel();
+        NativeLog.sink = sink;
+        NativeLog.maxLinesPerSecond = maxLinesPerSecond;
+        // Also tell libav, for code that checks av_log_get_level before preparing a message.
+        av_log_set_level(threshold.avLevel());
+        av_log_set_callback(CALLBACK);
+    }
+
+    /**
+     * Routes warnings and errors to {@code sink}, at most 100 lines per second.
+     */
+    public static void install(Sink sink) {
+        install(sink, Level.WARNING, 100);
+    }
+
+    /**
+     * Restores libav's default stderr logging, first reporting any run of repeated lines that
+     * has not been reported yet.
+     */
+    public static synchronized void uninstall() {
+        Sink target = sink;
+        if (target == null) return;
+        av_log_set_callback(av_log_default_callback$address());
+        List<LineBuffer> buffers;
+        synchronized (BUFFERS) {
+            buffers = new ArrayList<>(BUFFERS.keySet());
+        }
+        for (LineBuffer buffer : buffers) {
+            synchronized (buffer) {
+                reportRepeats(target, buffer);
+            }
+        }
+        sink = null;
+    }
+
+    /**
+     * Lines dropped by repeat collapsing or the rate cap since the bridge was loaded.
+     */
+    public static long suppressedCount() {
+        return suppressed.get();
+    }
+
+    // Upcall: must never throw into native code.
+    private static void callback(MemorySegment avcl, int level, MemorySegment fmt, MemorySegment vl) {
+        Sink target = sink;
+        // The level's low byte is the severity; the bits above carry flags such as colour hints.
+        if (target == null || (level & 0xff) > threshold) return;
+        try {
+            LineBuffer buffer = LINES.get();
+            // Only contended by uninstall() flushing this thread's pending repeats.
+            synchronized (buffer) {
+                int length = av_log_format_line2(avcl, level, fmt, vl, buffer.line, LINE_BUFFER_SIZE, buffer.printPrefix);
+                length = Math.min(length, LINE_BUFFER_SIZE - 1);
+                while (length > 0 && isLineBreak(buffer.line.get(ValueLayout.JAVA_BYTE, length - 1))) length--;
+                if (length <= 0) return;
+
+                if (buffer.isRepeat(length)) {
+                    suppressed.incrementAndGet();
+                    long now = System.nanoTime();
+                    if (++buffer.repeats == 1) {
+                        buffer.repeatsSince = now;
+                    } else if (now - buffer.repeatsSince >= WINDOW_NANOS) {
+                        reportRepeats(target, buffer); // a run that never ends is still reported
+                    }
+                    return;
+                }
+                Level severity = Level.of(level & 0xff);
+                reportRepeats(target, buffer);
+                buffer.remember(length, severity);
+
+                if (!admit()) return;
+                long dropped = takeWindowSummary();
+                if (dropped > 0) {
+                    target.log(Level.WARNING, dropped + " native log lines suppressed by rate limit");
+                }
+                target.log(severity, buffer.decode(length));
+            }
+        } catch (Throwable ignored) {
+            // A failing sink must not take down the native caller
+        }
+    }
+
+    // Caller holds the buffer's monitor.
+    private static void reportRepeats(Sink target, LineBuffer buffer) {
+        if (buffer.repeats == 0) return;
+        int repeats = buffer.repeats;
+        buffer.repeats = 0;
+        if (admit()) {
+            try {
+                target.log(buffer.lastLevel, "Last message repeated " + repeats + " times");
+            } catch (Throwable ignored) {
+                // Sinks must not throw; see Sink
+            }
+        }
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static synchronized boolean admit() {
+        int cap = maxLinesPerSecond;
+        if (cap == 0) return true;
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            windowStart = now;
+            windowCount = 0;
+        }
+        if (windowCount < cap) {
+            windowCount++;
+            return true;
+        }
+        windowSuppressed++;
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    /** Lines dropped in earlier windows that have not been reported yet. */
+    private static synchronized long takeWindowSummary() {
+        long dropped = windowSuppressed;
+        windowSuppressed = 0;
+        return dropped;
+    }
+
+    /**
+     * Formatting state and buffers owned by one logging thread.
+     */
+    private static final class LineBuffer {
+        // Freed with the thread's buffer once it becomes unreachable.
+        private final Arena arena = Arena.ofAuto();
+        final MemorySegment line = arena.allocate(LINE_BUFFER_SIZE);
+        // Copy of the last delivered line, compared byte for byte to detect repeats.
+        private final MemorySegment last = arena.allocate(LINE_BUFFER_SIZE);
+        // av_log_format_line2 tracks across calls whether the next line needs a context prefix.
+        final MemorySegment printPrefix = arena.allocate(C_INT);
+        private final ByteBuffer bytes = line.asByteBuffer();
+        private final CharBuffer chars = CharBuffer.allocate(LINE_BUFFER_SIZE);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private int lastLength = -1;
+        Level lastLevel = Level.INFO;
+        int repeats;
+        long repeatsSince;
+
+        LineBuffer() {
+            printPrefix.set(C_INT, 0, 1);
+        }
+
+        boolean isRepeat(int length) {
+            return length == lastLength && MemorySegment.mismatch(line, 0, length, last, 0, length) == -1;
+        }
+
+        void remember(int length, Level level) {
+            MemorySegment.copy(line, 0, last, 0, length);
+            lastLength = length;
+            lastLevel = level;
+        }
+
+        CharSequence decode(int length) {
+            bytes.clear().limit(length);
+            chars.clear();
+            decoder.reset();
+            decoder.decode(bytes, chars, true);
+            decoder.flush(chars);
+            return chars.flip();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.isNull;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.ref.Cleaner;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+
+/**
+ * Recycles {@code AVPacket}, {@code AVFrame} and {@code SwrContext} handles so that opening
+ * decoders and encoders does not go back to the native allocator every time.
+ * Each platform thread gets its own pool; virtual threads, which are usually too short-lived to
+ * benefit, share one. Released objects are reset with {@code av_packet_unref},
+ * {@code av_frame_unref} or {@code swr_close} before they are handed out again, and a pool
+ * keeps at most a few idle objects of each kind.
+ * A pool whose thread has died frees its idle objects once the thread is collected.
+ */
+final class NativeObjectPool implements AutoCloseable {
+
+    enum Kind { PACKET, FRAME, RESAMPLER }
+
+    private static final int MAX_IDLE_PER_KIND = 4;
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final NativeObjectPool SHARED = new NativeObjectPool(null);
+    private static final ThreadLocal<NativeObjectPool> PER_THREAD =
+        ThreadLocal.withInitial(() -> new NativeObjectPool(Thread.currentThread()));
+
+    private final Idle idle = new Idle();
+    private final Map<Long, Kind> leased = new HashMap<>();
+    private final Cleaner.Cleanable cleanable;
+    private boolean closed;
+
+    private NativeObjectPool(Thread owner) {
+        this.cleanable = (owner != null) ? CLEANER.register(owner, idle::free) : null;
+    }
+
+    /**
+     * The pool of the calling platform thread, or the shared pool on a virtual thread.
+     */
+    static NativeObjectPool current() {
+        return Thread.currentThread().isVirtual() ? SHARED : PER_THREAD.get();
+    }
+
+    /** A blank packet; return it with {@link #release(MemorySegment)}. */
+    MemorySegment packet() {
+        return lease(Kind.PACKET);
+    }
+
+    /** A blank frame; return it with {@link #release(MemorySegment)}. */
+    MemorySegment frame() {
+        return lease(Kind.FRAME);
+    }
+
+    /**
+     * An unconfigured resampler, to be set up by passing it to {@code swr_alloc_set_opts2}
+     * and {@code swr_init}; return it with {@link #release(MemorySegment)}.
+     */
+    MemorySegment resampler() {
+        return lease(Kind.RESAMPLER);
+    }
+
+    /**
+     * Resets an object leased from this pool and keeps it for reuse (or frees it if enough are
+     * idle). Releasing NULL is a no-op.
+     *
+     * @throws IllegalStateException if the object was not leased from this pool or was already released
+     */
+    synchronized void release(MemorySegment object) {
+        if (isNull(object)) return;
+        Kind kind = leased.remove(object.address());
+        if (kind == null) {
+            throw new IllegalStateException("Native object 0x" + Long.toHexString(object.address())
+                + " was not leased from this pool or was released twice.");
+        }
+        switch (kind) {
+            case PACKET -> av_packet_unref(object);
+            case FRAME -> av_frame_unref(object);
+            case RESAMPLER -> swr_close(object);
+        }
+        if (closed || !idle.offer(kind, object)) {
+            Idle.free(kind, object);
+        }
+    }
+
+    /**
+     * Stops tracking a leased object that native code has already freed, e.g. a resampler
+     * released by a failing {@code swr_alloc_set_opts2}.
+     */
+    synchronized void forget(MemorySegment object) {
+        if (!isNull(object)) leased.remove(object.address());
+    }
+
+    /** Objects currently leased and not yet released. */
+    synchronized int leasedCount() {
+        return leased.size();
+    }
+
+    /**
+     * Frees the idle objects and detaches the pool from its thread, which gets a fresh pool
+     * on its next use. The shared pool cannot be closed.
+     *
+     * @throws IllegalStateException if objects are still leased; they are freed when released
+     */
+    @Override
+    public void close() {
+        if (this == SHARED) {
+            throw new UnsupportedOperationException("The shared pool cannot be closed.");
+        }
+        int outstanding;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            outstanding = leased.size();
+        }
+        if (PER_THREAD.get() == this) PER_THREAD.remove();
+        cleanable.clean();
+        if (outstanding > 0) {
+            throw new IllegalStateException(outstanding + " native object(s) were leased from the pool and never released.");
+        }
+    }
+
+    private synchronized MemorySegment lease(Kind kind) {
+        if (closed) {
+            throw new IllegalStateException("Pool is closed.");
+        }
+        MemorySegment object = idle.poll(kind);
+        if (object == null) {
+            object = switch (kind) {
+                case PACKET -> av_packet_alloc();
+                case FRAME -> av_frame_alloc();
+                case RESAMPLER -> swr_alloc();
+            };
+            if (isNull(object)) {
+                throw new ExecutionException(-1, "Failed to allocate a native " + kind.name().toLowerCase());
+            }
+        }
+        leased.put(object.address(), kind);
+        return object;
+    }
+
+    /**
+     * Idle objects, kept apart from the pool so the cleaner can free them without keeping the
+     * pool (or its thread) reachable.
+     */
+    private static final class Idle {
+        private final Map<Kind, ArrayDeque<MemorySegment>> byKind = new EnumMap<>(Kind.class);
+
+        Idle() {
+            for (Kind kind : Kind.values()) byKind.put(kind, new ArrayDeque<>(MAX_IDLE_PER_KIND));
+        }
+
+        synchronized MemorySegment poll(Kind kind) {
+            return byKind.get(kind).pollLast();
+        }
+
+        synchronized boolean offer(Kind kind, MemorySegment object) {
+            ArrayDeque<MemorySegment> queue = byKind.get(kind);
+            if (queue.size() >= MAX_IDLE_PER_KIND) return false;
+            queue.addLast(object);
+            return true;
+        }
+
+        synchronized void free() {
+            byKind.forEach((kind, queue) -> {
+                MemorySegment object;
+                while ((object = queue.pollLast()) != null) free(kind, object);
+            });
+        }
+
+        static void free(Kind kind, MemorySegment object) {
+            // The free functions take a pointer to the handle so they can null it.
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment holder = arena.allocate(C_POINTER);
+                holder.set(C_POINTER, 0, object);
+                switch (kind) {
+                    case PACKET -> av_packet_free(holder);
+                    case FRAME -> av_frame_free(holder);
+                    case RESAMPLER -> swr_free(holder);
+                }
+            }
+        }
+    }
+}
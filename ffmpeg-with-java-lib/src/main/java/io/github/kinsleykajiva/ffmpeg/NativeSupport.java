@@ -0,0 +1,69 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException;
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.model.SampleFormat;
+
+/**
+ * Small helpers shared by the hand-written classes that drive the Panama bindings.
+ */
+final class NativeSupport {
+
+    /**
+     * {@code AVERROR(EAGAIN)}. The generated constant comes from the Windows headers, where
+     * EAGAIN is 11 as on Linux; macOS numbers it 35.
+     */
+    static final int AVERROR_EAGAIN = -(FFmpegBinary.getCurrentOS() == FFmpegBinary.OS.MACOS ? 35 : EAGAIN());
+
+    private NativeSupport() {}
+
+    static void requireNative(String feature) {
+        if (!FFmpeg.isNativeAvailable()) {
+            throw new BinaryNotFoundException("Native FFmpeg libraries are not loaded; " + feature + " is unavailable.");
+        }
+    }
+
+    /** Throws an ExecutionException carrying libav's error text if {@code ret} is negative. */
+    static int check(int ret, String call, String subject) {
+        if (ret < 0) {
+            try (Arena arena = Arena.ofConfined()) {
+                throw new ExecutionException(ret, call + " failed for: " + subject + " (" + PanamaProber.errorString(ret, arena) + ")");
+            }
+        }
+        return ret;
+    }
+
+    static boolean isNull(MemorySegment segment) {
+        return segment == null || segment.address() == 0;
+    }
+
+    static int sampleFormatId(SampleFormat format) {
+        return switch (format) {
+            case U8 -> AV_SAMPLE_FMT_U8();
+            case S16 -> AV_SAMPLE_FMT_S16();
+            case S32 -> AV_SAMPLE_FMT_S32();
+            case S64 -> AV_SAMPLE_FMT_S64();
+            case FLT -> AV_SAMPLE_FMT_FLT();
+            case DBL -> AV_SAMPLE_FMT_DBL();
+            case U8P -> AV_SAMPLE_FMT_U8P();
+            case S16P -> AV_SAMPLE_FMT_S16P();
+            case S32P -> AV_SAMPLE_FMT_S32P();
+            case S64P -> AV_SAMPLE_FMT_S64P();
+            case FLTP -> AV_SAMPLE_FMT_FLTP();
+            case DBLP -> AV_SAMPLE_FMT_DBLP();
+        };
+    }
+
+    /** Inverse of {@link #sampleFormatId(SampleFormat)}; null for formats the enum does not cover. */
+    static SampleFormat sampleFormat(int id) {
+        for (SampleFormat format : SampleFormat.values()) {
+            if (sampleFormatId(format) == id) return format;
+        }
+        return null;
+    }
+}
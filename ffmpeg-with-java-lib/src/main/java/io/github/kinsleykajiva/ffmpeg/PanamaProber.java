@@ -0,0 +1,289 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.exception.FFmpegException;
+import io.github.kinsleykajiva.ffmpeg.model.AudioMetadata;
+import io.github.kinsleykajiva.ffmpeg.model.Chapter;
+import io.github.kinsleykajiva.ffmpeg.model.ProbeOptions;
+import io.github.kinsleykajiva.ffmpeg.model.ProbeOptions.Section;
+
+/**
+ * In-process metadata prober built on the Panama bindings.
+ * Opens the input with {@code avformat_open_input}/{@code avformat_find_stream_info} and reads
+ * {@link AudioMetadata} straight from {@code AVFormatContext}, {@code AVStream} and
+ * {@code AVCodecParameters}, so no ffprobe process is spawned and no JSON is produced.
+ * All native memory for a probe lives in one confined arena released when the call returns.
+ * Only the work the requested {@link ProbeOptions} sections need is done: non-audio streams are
+ * discarded, and {@code avformat_find_stream_info} is skipped when the container headers already
+ * supply the requested fields. Falls back to {@link FFprobeJsonProber} when the native libraries are not loaded.
+ */
+public final class PanamaProber {
+
+    private static final int DESCRIBE_BUFFER_SIZE = 64;
+    private static final int ERROR_BUFFER_SIZE = 128;
+
+    private PanamaProber() {}
+
+    /**
+     * Probes an audio file and returns structured metadata.
+     *
+     * @param inputPath Path to the audio file to probe.
+     * @return A fully populated AudioMetadata record.
+     * @throws ExecutionException if the file cannot be opened or analysed.
+     */
+    public static AudioMetadata probe(String inputPath) {
+        return probe(inputPath, ProbeOptions.defaults());
+    }
+
+    /**
+     * Probes only the sections selected in {@code options}.
+     *
+     * @param inputPath Path to the audio file to probe.
+     * @param options which sections to read
+     * @return AudioMetadata with the requested sections filled in.
+     * @throws ExecutionException if the file cannot be opened or analysed.
+     */
+    public static AudioMetadata probe(String inputPath, ProbeOptions options) {
+        if (!FFmpeg.isNativeAvailable()) {
+            return FFprobeJsonProber.probe(inputPath, options);
+        }
+        String resolvedPath = new File(inputPath).getAbsolutePath();
+        try {
+            return probeNative(resolvedPath, options);
+        } catch (FFmpegException e) {
+            throw e;
+        } catch (Throwable t) {
+            // Symbol missing from the loaded build, native access denied, etc.
+            return FFprobeJsonProber.probe(inputPath, options);
+        }
+    }
+
+    /**
+     * Probes input supplied from Java memory, a channel or a stream instead of a file.
+     *
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException if the native libraries are not loaded
+     * @throws ExecutionException if the input cannot be opened or analysed
+     */
+    public static AudioMetadata probe(JavaAvioSource source) {
+        return probe(source, ProbeOptions.defaults());
+    }
+
+    /**
+     * Probes only the sections selected in {@code options} of input supplied through a
+     * {@link JavaAvioSource}. There is no ffprobe fallback, since ffprobe cannot read Java memory.
+     *
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException if the native libraries are not loaded
+     * @throws ExecutionException if the input cannot be opened or analysed
+     */
+    public static AudioMetadata probe(JavaAvioSource source, ProbeOptions options) {
+        if (source == null) {
+            throw new IllegalArgumentException("Source cannot be null.");
+        }
+        NativeSupport.requireNative("probing from a Java source");
+        return probeNative(source.toString(), source, options);
+    }
+
+    private static AudioMetadata probeNative(String path, ProbeOptions options) {
+        return probeNative(path, null, options);
+    }
+
+    private static AudioMetadata probeNative(String path, JavaAvioSource source, ProbeOptions options) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment ctxHolder = arena.allocate(C_POINTER);
+            int ret = (source != null)
+                ? source.openInput(ctxHolder)
+                : avformat_open_input(ctxHolder, arena.allocateFrom(path), MemorySegment.NULL, MemorySegment.NULL);
+            if (ret < 0) {
+                throw new ExecutionException(ret, "avformat_open_input failed for: " + path + " (" + errorString(ret, arena) + ")");
+            }
+            MemorySegment ctx = ctxHolder.get(C_POINTER, 0);
+            try {
+                int audioIndex = firstAudioStream(ctx);
+                // With no audio stream known yet, analysis has to look at every stream to find one.
+                if (audioIndex >= 0) keepOnly(ctx, audioIndex);
+                if (needsStreamInfo(ctx, audioIndex, options)) {
+                    ret = avformat_find_stream_info(ctx, MemorySegment.NULL);
+                    if (ret < 0) {
+                        throw new ExecutionException(ret, "avformat_find_stream_info failed for: " + path + " (" + errorString(ret, arena) + ")");
+                    }
+                    // Some inputs (MPEG-TS, headerless streams) only reveal their audio during analysis.
+                    audioIndex = Math.max(-1, av_find_best_stream(ctx, AVMEDIA_TYPE_AUDIO(), -1, -1, MemorySegment.NULL, 0));
+                    if (audioIndex >= 0) keepOnly(ctx, audioIndex);
+                }
+                long inputSize = (source != null) ? source.size() : new File(path).length();
+                return readMetadata(ctx, path, inputSize, audioIndex, options, arena);
+            } finally {
+                avformat_close_input(ctxHolder);
+            }
+        }
+    }
+
+    /** Index of the first stream the container headers declare as audio, or -1. */
+    private static int firstAudioStream(MemorySegment ctx) {
+        int nbStreams = AVFormatContext.nb_streams(ctx);
+        MemorySegment streams = AVFormatContext.streams(ctx);
+        for (int i = 0; i < nbStreams; i++) {
+            if (AVCodecParameters.codec_type(AVStream.codecpar(streams.getAtIndex(C_POINTER, i))) == AVMEDIA_TYPE_AUDIO()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks every stream except {@code audioIndex} as discarded so demuxers that honour it skip
+     * their packets.
+     */
+    private static void keepOnly(MemorySegment ctx, int audioIndex) {
+        int nbStreams = AVFormatContext.nb_streams(ctx);
+        MemorySegment streams = AVFormatContext.streams(ctx);
+        for (int i = 0; i < nbStreams; i++) {
+            AVStream.discard(streams.getAtIndex(C_POINTER, i), (i == audioIndex) ? AVDISCARD_DEFAULT() : AVDISCARD_ALL());
+        }
+    }
+
+    /**
+     * Stream analysis reads and decodes packets; it is only needed when the container headers
+     * leave the duration or a requested audio field unknown.
+     */
+    private static boolean needsStreamInfo(MemorySegment ctx, int audioIndex, ProbeOptions options) {
+        if (durationSeconds(ctx, audioIndex) <= 0) return true;
+        if (!options.includes(Section.AUDIO_STREAM)) return false;
+        if (audioIndex < 0) return true;
+        MemorySegment codecpar = AVStream.codecpar(AVFormatContext.streams(ctx).getAtIndex(C_POINTER, audioIndex));
+        return AVCodecParameters.sample_rate(codecpar) <= 0
+            || AVChannelLayout.nb_channels(AVCodecParameters.ch_layout(codecpar)) <= 0;
+    }
+
+    /**
+     * The container duration, or before stream analysis has filled it in, the duration the
+     * demuxer read from the audio stream's header. Returns 0 if neither is known.
+     */
+    private static double durationSeconds(MemorySegment ctx, int audioIndex) {
+        long rawDuration = AVFormatContext.duration(ctx);
+        if (rawDuration != AV_NOPTS_VALUE() && rawDuration > 0) {
+            return rawDuration / (double) AV_TIME_BASE();
+        }
+        if (audioIndex >= 0) {
+            MemorySegment stream = AVFormatContext.streams(ctx).getAtIndex(C_POINTER, audioIndex);
+            long streamDuration = AVStream.duration(stream);
+            MemorySegment timeBase = AVStream.time_base(stream);
+            if (streamDuration != AV_NOPTS_VALUE() && streamDuration > 0 && AVRational.den(timeBase) > 0) {
+                return streamDuration * AVRational.num(timeBase) / (double) AVRational.den(timeBase);
+            }
+        }
+        return 0.0;
+    }
+
+    private static AudioMetadata readMetadata(MemorySegment ctx, String path, long inputSize, int audioIndex,
+                                              ProbeOptions options, Arena arena) {
+        MemorySegment iformat = AVFormatContext.iformat(ctx);
+        String formatName = isNull(iformat) ? "unknown" : stringOrDefault(AVInputFormat.name(iformat), "unknown");
+
+        double duration = durationSeconds(ctx, audioIndex);
+        long bitrate = Math.max(0, AVFormatContext.bit_rate(ctx));
+        if (bitrate == 0 && duration > 0 && inputSize > 0) {
+            // Without stream analysis libavformat leaves the overall bitrate unset.
+            bitrate = (long) (inputSize * 8 / duration);
+        }
+
+        Map<String, String> tags = options.includes(Section.TAGS)
+            ? readDictionary(AVFormatContext.metadata(ctx)) : new HashMap<>();
+
+        // --- Extract from first audio stream ---
+        int sampleRate = 0;
+        String channelLayout = "unknown";
+        if (audioIndex >= 0 && options.includes(Section.AUDIO_STREAM)) {
+            MemorySegment codecpar = AVStream.codecpar(AVFormatContext.streams(ctx).getAtIndex(C_POINTER, audioIndex));
+            sampleRate = AVCodecParameters.sample_rate(codecpar);
+            channelLayout = describeLayout(AVCodecParameters.ch_layout(codecpar), arena);
+        }
+
+        List<Chapter> chapters = options.includes(Section.CHAPTERS) ? readChapters(ctx) : List.of();
+        long packets = (audioIndex >= 0 && options.includes(Section.PACKETS_SUMMARY))
+            ? countPackets(ctx, audioIndex, path, arena) : 0;
+
+        return new AudioMetadata(formatName, duration, bitrate, sampleRate, channelLayout, tags, chapters, packets);
+    }
+
+    private static List<Chapter> readChapters(MemorySegment ctx) {
+        int count = AVFormatContext.nb_chapters(ctx);
+        MemorySegment array = AVFormatContext.chapters(ctx);
+        List<Chapter> chapters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MemorySegment chapter = array.getAtIndex(C_POINTER, i);
+            MemorySegment timeBase = AVChapter.time_base(chapter);
+            double unit = AVRational.num(timeBase) / (double) AVRational.den(timeBase);
+            String title = readDictionary(AVChapter.metadata(chapter)).get("title");
+            chapters.add(new Chapter(AVChapter.id(chapter), AVChapter.start(chapter) * unit,
+                AVChapter.end(chapter) * unit, title));
+        }
+        return chapters;
+    }
+
+    /** Demuxes the rest of the file, counting the packets of the audio stream. */
+    private static long countPackets(MemorySegment ctx, int audioIndex, String path, Arena arena) {
+        NativeObjectPool pool = NativeObjectPool.current();
+        MemorySegment packet = pool.packet();
+        try {
+            long count = 0;
+            int ret;
+            while ((ret = av_read_frame(ctx, packet)) >= 0) {
+                if (AVPacket.stream_index(packet) == audioIndex) count++;
+                av_packet_unref(packet);
+            }
+            if (ret != AVERROR_EOF()) {
+                throw new ExecutionException(ret, "av_read_frame failed for: " + path + " (" + errorString(ret, arena) + ")");
+            }
+            return count;
+        } finally {
+            pool.release(packet);
+        }
+    }
+
+    static Map<String, String> readDictionary(MemorySegment dict) {
+        Map<String, String> entries = new HashMap<>();
+        if (isNull(dict)) return entries;
+        MemorySegment entry = av_dict_iterate(dict, MemorySegment.NULL);
+        while (!isNull(entry)) {
+            entries.put(AVDictionaryEntry.key(entry).getString(0), AVDictionaryEntry.value(entry).getString(0));
+            entry = av_dict_iterate(dict, entry);
+        }
+        return entries;
+    }
+
+    /** Mirrors ffprobe: a named layout when the order is known, otherwise "<n>ch". */
+    private static String describeLayout(MemorySegment layout, Arena arena) {
+        int channels = AVChannelLayout.nb_channels(layout);
+        if (AVChannelLayout.order(layout) != AV_CHANNEL_ORDER_UNSPEC()) {
+            MemorySegment buf = arena.allocate(DESCRIBE_BUFFER_SIZE);
+            if (av_channel_layout_describe(layout, buf, DESCRIBE_BUFFER_SIZE) > 0) {
+                return buf.getString(0);
+            }
+        }
+        return channels + "ch";
+    }
+
+    static String errorString(int errnum, Arena arena) {
+        MemorySegment buf = arena.allocate(ERROR_BUFFER_SIZE);
+        return av_strerror(errnum, buf, ERROR_BUFFER_SIZE) == 0 ? buf.getString(0) : "error " + errnum;
+    }
+
+    private static String stringOrDefault(MemorySegment cString, String defaultVal) {
+        return isNull(cString) ? defaultVal : cString.getString(0);
+    }
+
+    private static boolean isNull(MemorySegment segment) {
+        return segment == null || segment.address() == 0;
+    }
+}
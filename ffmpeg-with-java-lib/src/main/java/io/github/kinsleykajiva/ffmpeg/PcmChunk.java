@@ -0,0 +1,93 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.kinsleykajiva.ffmpeg.model.PcmFormat;
+
+/**
+ * A block of PCM produced by {@link AudioDecoder} or {@link Resampler}.
+ * A decoder or resampler hands out the same chunk object every time and updates it in place, and
+ * its segments point into reusable native buffers, so a chunk is only valid until the next call to
+ * {@link AudioDecoder#read()} or to the resampler, or until either is closed; copy the data (and
+ * the counters) to keep them.
+ */
+public final class PcmChunk {
+
+    private final PcmFormat format;
+    private final MemorySegment[] planes;
+    private final List<MemorySegment> planeList;
+    private int samples;
+    private long startSample;
+
+    /**
+     * @param planes one segment per channel for planar formats, otherwise a single interleaved segment
+     * @param samples samples per channel in this chunk
+     * @param startSample index of the first sample on the output timeline, counted at the output rate
+     * @param format layout of the samples
+     */
+    public PcmChunk(List<MemorySegment> planes, int samples, long startSample, PcmFormat format) {
+        this(format, planes.size());
+        for (int i = 0; i < this.planes.length; i++) {
+            this.planes[i] = planes.get(i);
+        }
+        update(samples, startSample);
+    }
+
+    /** An empty view with {@code planeCount} planes, filled in by its producer. */
+    PcmChunk(PcmFormat format, int planeCount) {
+        this.format = format;
+        this.planes = new MemorySegment[planeCount];
+        Arrays.fill(this.planes, MemorySegment.NULL);
+        this.planeList = Collections.unmodifiableList(Arrays.asList(this.planes));
+    }
+
+    void setPlane(int index, MemorySegment plane) {
+        planes[index] = plane;
+    }
+
+    void update(int samples, long startSample) {
+        this.samples = samples;
+        this.startSample = startSample;
+    }
+
+    /** One segment per channel for planar formats, otherwise a single interleaved segment. */
+    public List<MemorySegment> planes() {
+        return planeList;
+    }
+
+    /** Samples per channel in this chunk. */
+    public int samples() {
+        return samples;
+    }
+
+    /** Index of the first sample on the output timeline, counted at the output rate. */
+    public long startSample() {
+        return startSample;
+    }
+
+    /** Layout of the samples. */
+    public PcmFormat format() {
+        return format;
+    }
+
+    /** The interleaved buffer, or the first channel's buffer for planar formats. */
+    public MemorySegment data() {
+        return planes[0];
+    }
+
+    public double startSeconds() {
+        return startSample / (double) format.sampleRate();
+    }
+
+    public double durationSeconds() {
+        return samples / (double) format.sampleRate();
+    }
+
+    @Override
+    public String toString() {
+        return "PcmChunk[samples=" + samples + ", startSample=" + startSample + ", format=" + format + "]";
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.exception.FFmpegException;
+import io.github.kinsleykajiva.ffmpeg.model.AudioMetadata;
+import io.github.kinsleykajiva.ffmpeg.model.ProbeOptions;
+import io.github.kinsleykajiva.ffmpeg.model.ProbeResult;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A running directory probe started by {@link FFmpeg#probeAll}.
+ * One virtual thread walks the tree and each file is probed on its own virtual thread, with at
+ * most {@link ProbeOptions#concurrency()} probes in flight. Results are delivered in completion
+ * order; failures are reported as results rather than thrown. When the consumer falls behind by
+ * {@link ProbeOptions#bufferedResults()} results, the walk pauses until it catches up.
+ */
+public final class ProbeBatch implements AutoCloseable {
+
+    private static final ProbeResult END = new ProbeResult(null, null, null, 0);
+
+    private final Path root;
+    private final ProbeOptions options;
+    private final Function<String, AudioMetadata> prober;
+    private final LinkedBlockingQueue<ProbeResult> results = new LinkedBlockingQueue<>();
+    private final Semaphore inFlight;
+    private final Semaphore buffered;
+    // Starts at one for the walker itself; whoever brings it to zero ends the stream.
+    private final AtomicInteger outstanding = new AtomicInteger(1);
+    private final AtomicLong discovered = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long finishNanos;
+    private volatile boolean closed;
+    private Thread walker;
+
+    private ProbeBatch(Path root, ProbeOptions options, Function<String, AudioMetadata> prober) {
+        this.root = root;
+        this.options = options;
+        this.prober = prober;
+        this.inFlight = new Semaphore(options.concurrency());
+        this.buffered = new Semaphore(options.bufferedResults() + options.concurrency());
+    }
+
+    static ProbeBatch start(Path root, ProbeOptions options, Function<String, AudioMetadata> prober) {
+        ProbeBatch batch = new ProbeBatch(root, options, prober);
+        batch.walker = Thread.ofVirtual().name("ffmpeg-probe-walker").start(batch::walk);
+        return batch;
+    }
+
+    /**
+     * Results in completion order. The stream blocks while probes are still running and ends once
+     * the whole tree has been probed (or the batch is closed). It can be consumed only once;
+     * closing it closes the batch.
+     */
+    public Stream<ProbeResult> results() {
+        Spliterator<ProbeResult> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super ProbeResult> action) {
+                ProbeResult next;
+                try {
+                    next = results.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                if (next == END) {
+                    results.add(END); // keep the stream terminated for repeated calls
+                    return false;
+                }
+                buffered.release();
+                action.accept(next);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Stops walking the tree. Probes already running finish, and their results are still delivered.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread w = walker;
+        if (w != null) w.interrupt();
+    }
+
+    /** Files found so far that passed the filter. */
+    public long discovered() {
+        return discovered.get();
+    }
+
+    /** Files probed so far, successfully or not. */
+    public long completed() {
+        return completed.get();
+    }
+
+    /** Files (or directories) that could not be probed. */
+    public long failed() {
+        return failed.get();
+    }
+
+    public boolean isDone() {
+        return finishNanos != 0;
+    }
+
+    /**
+     * Probe throughput since the batch started, or over its whole run once it is done.
+     */
+    public double filesPerSecond() {
+        long end = finishNanos != 0 ? finishNanos : System.nanoTime();
+        double seconds = (end - startNanos) / 1_000_000_000.0;
+        return seconds <= 0 ? 0 : completed.get() / seconds;
+    }
+
+    private void walk() {
+        try {
+            Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), options.maxDepth(), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (closed) return FileVisitResult.TERMINATE;
+                    if (!attrs.isRegularFile()) return FileVisitResult.CONTINUE;
+                    if (options.fileFilter() != null && !options.fileFilter().test(file)) return FileVisitResult.CONTINUE;
+                    try {
+                        submit(file);
+                    } catch (InterruptedException e) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    try {
+                        offerFailure(file, e);
+                    } catch (InterruptedException interrupted) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            try {
+                offerFailure(root, e);
+            } catch (InterruptedException ignored) {
+                // Closed while waiting for room in the buffer
+            }
+        } finally {
+            taskDone();
+        }
+    }
+
+    private void submit(Path file) throws InterruptedException {
+        buffered.acquire();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            buffered.release();
+            throw e;
+        }
+        discovered.incrementAndGet();
+        outstanding.incrementAndGet();
+        Thread.ofVirtual().name("ffmpeg-probe").start(() -> {
+            long started = System.nanoTime();
+            ProbeResult result = null;
+            try {
+                result = new ProbeResult(file, prober.apply(file.toString()), null, elapsedMillis(started));
+            } catch (FFmpegException e) {
+                result = new ProbeResult(file, null, e, elapsedMillis(started));
+            } catch (Throwable t) {
+                // Errors too (e.g. a LinkageError from the native bindings): the stream must still end.
+                result = new ProbeResult(file, null,
+                    new ExecutionException(-1, "Failed to probe " + file + ": " + t, t), elapsedMillis(started));
+            } finally {
+                inFlight.release();
+                if (result != null) deliver(result); else buffered.release();
+                taskDone();
+            }
+        });
+    }
+
+    private void offerFailure(Path path, IOException e) throws InterruptedException {
+        // Unreadable entries occupy the result buffer like any other result; close() interrupts the wait.
+        buffered.acquire();
+        deliver(new ProbeResult(path, null,
+            new ExecutionException(-1, "Cannot read " + path + ": " + e.getMessage()), 0));
+    }
+
+    private void deliver(ProbeResult result) {
+        if (!result.isSuccess()) failed.incrementAndGet();
+        completed.incrementAndGet();
+        results.add(result);
+    }
+
+    private void taskDone() {
+        if (outstanding.decrementAndGet() == 0) {
+            finishNanos = System.nanoTime();
+            results.add(END);
+        }
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,244 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import com.google.gson.Gson;
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.model.AudioMetadata;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Cache of probe results keyed by canonical path, file size, modification time and a
+ * checksum of the first 64 KB of the file.
+ * Entries are kept in a size-bounded in-memory LRU and, optionally, in a directory on disk
+ * so they survive restarts. A changed file produces a different key, so stale entries are
+ * never returned and need no explicit invalidation.
+ */
+public final class ProbeCache {
+
+    private static final int FINGERPRINT_BYTES = 64 * 1024;
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Identity of a file's contents as seen by the cache.
+     */
+    record Key(String canonicalPath, long size, long modifiedMillis, long fingerprint) {}
+
+    private record DiskEntry(Key key, AudioMetadata metadata) {}
+
+    private final int maxEntries;
+    private final Path diskDirectory;
+    private final Map<String, DiskEntry> memory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an in-memory cache holding at most {@code maxEntries} results.
+     */
+    public ProbeCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * Creates a cache with an in-memory LRU tier and an on-disk tier in {@code diskDirectory}
+     * (created if missing; null disables the disk tier).
+     */
+    public ProbeCache(int maxEntries, Path diskDirectory) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1. Provided: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.diskDirectory = diskDirectory;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DiskEntry> eldest) {
+                return size() > ProbeCache.this.maxEntries;
+            }
+        };
+        if (diskDirectory != null) {
+            try {
+                Files.createDirectories(diskDirectory);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot create probe cache directory: " + diskDirectory, e);
+            }
+        }
+    }
+
+    /**
+     * Returns cached metadata for the file, probing it with {@link PanamaProber} on a miss.
+     */
+    public AudioMetadata probe(String inputPath) {
+        return probe(inputPath, PanamaProber::probe);
+    }
+
+    /**
+     * Returns cached metadata for the file, probing it with {@code prober} on a miss.
+     *
+     * @throws ExecutionException if the file cannot be read or probing fails
+     */
+    public AudioMetadata probe(String inputPath, Function<String, AudioMetadata> prober) {
+        return probe(inputPath, prober, true);
+    }
+
+    /**
+     * Returns cached metadata for the file, probing it with {@code prober} on a miss; the fresh
+     * result is only cached when {@code store} is true (e.g. when the prober was asked for less
+     * than a full probe).
+     *
+     * @throws ExecutionException if the file cannot be read or probing fails
+     */
+    public AudioMetadata probe(String inputPath, Function<String, AudioMetadata> prober, boolean store) {
+        Key key;
+        try {
+            key = keyFor(Path.of(inputPath));
+        } catch (IOException e) {
+            throw new ExecutionException(-1, "Cannot read file for probing: " + inputPath + " (" + e.getMessage() + ")");
+        }
+
+        DiskEntry entry;
+        synchronized (memory) {
+            entry = memory.get(key.canonicalPath());
+        }
+        if (entry == null || !entry.key().equals(key)) {
+            entry = readDisk(key);
+        }
+        if (entry != null && entry.key().equals(key)) {
+            hits.incrementAndGet();
+            return entry.metadata();
+        }
+
+        misses.incrementAndGet();
+        AudioMetadata metadata = prober.apply(inputPath);
+        if (!store) return metadata;
+        DiskEntry fresh = new DiskEntry(key, metadata);
+        synchronized (memory) {
+            memory.put(key.canonicalPath(), fresh);
+        }
+        writeDisk(fresh);
+        return metadata;
+    }
+
+    /**
+     * Drops any cached result for the file from both tiers.
+     */
+    public void invalidate(String inputPath) {
+        String canonical;
+        try {
+            canonical = Path.of(inputPath).toRealPath().toString();
+        } catch (IOException e) {
+            canonical = Path.of(inputPath).toAbsolutePath().normalize().toString();
+        }
+        synchronized (memory) {
+            memory.remove(canonical);
+        }
+        if (diskDirectory != null) {
+            try {
+                Files.deleteIfExists(diskFile(canonical));
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Clears the in-memory tier. Disk entries are kept; they are revalidated on use.
+     */
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    static Key keyFor(Path file) throws IOException {
+        Path real = file.toRealPath();
+        BasicFileAttributes attrs = Files.readAttributes(real, BasicFileAttributes.class);
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(real, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(FINGERPRINT_BYTES, attrs.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // keep reading until the head is fully buffered
+            }
+            buffer.flip();
+            crc.update(buffer);
+        }
+        return new Key(real.toString(), attrs.size(), attrs.lastModifiedTime().toMillis(), crc.getValue());
+    }
+
+    private DiskEntry readDisk(Key key) {
+        if (diskDirectory == null) return null;
+        Path file = diskFile(key.canonicalPath());
+        if (!Files.isRegularFile(file)) return null;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            DiskEntry entry = GSON.fromJson(reader, DiskEntry.class);
+            if (entry == null || !key.equals(entry.key())) return null;
+            synchronized (memory) {
+                memory.put(key.canonicalPath(), entry);
+            }
+            return entry;
+        } catch (Exception e) {
+            return null; // corrupt or partially written entry: treat as a miss
+        }
+    }
+
+    private void writeDisk(DiskEntry entry) {
+        if (diskDirectory == null) return;
+        Path target = diskFile(entry.key().canonicalPath());
+        try {
+            Path tmp = Files.createTempFile(diskDirectory, "probe", ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    GSON.toJson(entry, writer);
+                }
+                try {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                // Only left behind if serialisation or the move failed
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // The disk tier is best-effort; the in-memory tier already holds the result
+        }
+    }
+
+    private Path diskFile(String canonicalPath) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalPath.getBytes(StandardCharsets.UTF_8));
+            return diskDirectory.resolve(HexFormat.of().formatHex(digest) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
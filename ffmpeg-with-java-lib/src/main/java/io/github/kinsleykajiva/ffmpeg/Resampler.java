@@ -0,0 +1,352 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import static io.github.kinsleykajiva.ffmpeg.ffmpeg_includes_h.*;
+import static io.github.kinsleykajiva.ffmpeg.NativeSupport.check;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.List;
+
+import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.model.PcmFormat;
+import io.github.kinsleykajiva.ffmpeg.model.SampleFormat;
+
+/**
+ * Streaming sample format, rate and channel conversion with libswresample, for PCM that is
+ * already in Java (e.g. 8 kHz telephony audio resampled to 16 kHz for speech recognition).
+ * Input can be any chunk size; output buffers are allocated once, grown when a larger chunk
+ * arrives and then reused, and every call returns the same {@link PcmChunk} updated in place, so
+ * it is only valid until the next call. A stream whose chunks keep the same length converts
+ * without allocating on either the native or the Java heap; when the output length changes, only
+ * the per-plane slices of the chunk are recut. The filter's internal delay is emitted by
+ * {@link #flush()} at end of stream.
+ * A resampler is not thread-safe; use one per stream and close it when done.
+ *
+ * <pre>{@code
+ * try (Resampler resampler = Resampler.create(new PcmFormat(SampleFormat.S16, 8000, 1),
+ *                                             new PcmFormat(SampleFormat.FLT, 16000, 1))) {
+ *     for (MemorySegment packet : rtpPayloads) {
+ *         PcmChunk out = resampler.convert(packet, (int) (packet.byteSize() / 2));
+ *         asr.accept(out.data(), out.samples());
+ *     }
+ *     PcmChunk tail = resampler.flush();
+ *     asr.accept(tail.data(), tail.samples());
+ * }
+ * }</pre>
+ */
+public final class Resampler implements AutoCloseable {
+
+    private static final int MIN_CAPACITY_SAMPLES = 4096;
+
+    private final String subject;
+    private final PcmFormat input;
+    private final PcmFormat output;
+    private final int inputFormatId;
+    private final int outputFormatId;
+    private final Arena arena = Arena.ofShared();
+    private final MemorySegment swrHolder = arena.allocate(C_POINTER);
+    private final NativeObjectPool pool = NativeObjectPool.current();
+    private final MemorySegment inPointers;
+    private final MemorySegment outPointers;
+    // Returned by every call; its plane slices are recut only when the length or the buffers change.
+    private final PcmChunk chunk;
+    private int slicedSamples = -1;
+
+    private MemorySegment swr = MemorySegment.NULL;
+    private int capacity;
+    // Native copy of heap-backed input, which native code cannot address, cut into per-plane slices.
+    private MemorySegment staging = MemorySegment.NULL;
+    private final MemorySegment[] stagingPlanes;
+    private long stagedPlaneBytes = -1;
+    private long nextSample;
+    private boolean closed;
+
+    private Resampler(String subject, PcmFormat input, int inputFormatId, PcmFormat output) {
+        this.subject = subject;
+        this.input = input;
+        this.output = output;
+        this.inputFormatId = inputFormatId;
+        this.outputFormatId = NativeSupport.sampleFormatId(output.sampleFormat());
+        this.inPointers = arena.allocate(C_POINTER, input.channels());
+        this.outPointers = arena.allocate(C_POINTER, output.channels());
+        this.chunk = new PcmChunk(output, output.sampleFormat().isPlanar() ? output.channels() : 1);
+        this.stagingPlanes = new MemorySegment[input.channels()];
+    }
+
+    /**
+     * Creates a resampler between two PCM layouts, using the default channel layout for each
+     * channel count.
+     *
+     * @param input the incoming layout; rate and channel count must be set
+     * @param output the layout to produce; zero rate or channels keep the input's
+     * @throws IllegalArgumentException if either format is null or the input is incomplete
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.BinaryNotFoundException if the native libraries are not loaded
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.ExecutionException if libswresample rejects the conversion
+     */
+    public static Resampler create(PcmFormat input, PcmFormat output) {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Input and output formats cannot be null.");
+        }
+        if (input.sampleRate() <= 0 || input.channels() <= 0) {
+            throw new IllegalArgumentException("Input sample rate and channel count must be set. Provided: " + input);
+        }
+        NativeSupport.requireNative("resampling");
+        Resampler resampler = new Resampler("resampler", input, NativeSupport.sampleFormatId(input.sampleFormat()),
+            complete(output, input.sampleRate(), input.channels()));
+        try (Arena scratch = Arena.ofConfined()) {
+            MemorySegment inLayout = AVChannelLayout.allocate(scratch);
+            av_channel_layout_default(inLayout, input.channels());
+            resampler.init(inLayout);
+        } catch (RuntimeException e) {
+            resampler.close();
+            throw e;
+        }
+        return resampler;
+    }
+
+    /**
+     * Creates a resampler for decoded frames, keeping the decoder's own channel layout so
+     * downmixing uses the real speaker positions. The output layout is the input's when the
+     * channel count is unchanged.
+     */
+    static Resampler forFrames(MemorySegment inLayout, int inFormatId, int inRate, PcmFormat output, String subject) {
+        SampleFormat inFormat = NativeSupport.sampleFormat(inFormatId);
+        int inChannels = AVChannelLayout.nb_channels(inLayout);
+        if (inFormat == null || inRate <= 0 || inChannels <= 0) {
+            throw new ExecutionException(-1, "Unsupported decoded audio (format " + inFormatId + ", " + inRate
+                + " Hz, " + inChannels + " channels) for: " + subject);
+        }
+        PcmFormat input = new PcmFormat(inFormat, inRate, inChannels);
+        Resampler resampler = new Resampler(subject, input, inFormatId, complete(output, inRate, inChannels));
+        try {
+            resampler.init(inLayout);
+        } catch (RuntimeException e) {
+            resampler.close();
+            throw e;
+        }
+        return resampler;
+    }
+
+    private static PcmFormat complete(PcmFormat output, int rate, int channels) {
+        return new PcmFormat(output.sampleFormat(),
+            output.sampleRate() > 0 ? output.sampleRate() : rate,
+            output.channels() > 0 ? output.channels() : channels);
+    }
+
+    private void init(MemorySegment inLayout) {
+        // swr_alloc_set_opts2 configures the pooled context in place instead of allocating one.
+        swr = pool.resampler();
+        swrHolder.set(C_POINTER, 0, swr);
+        int ret;
+        try (Arena scratch = Arena.ofConfined()) {
+            MemorySegment outLayout = AVChannelLayout.allocate(scratch);
+            if (AVChannelLayout.nb_channels(inLayout) == output.channels()) {
+                check(av_channel_layout_copy(outLayout, inLayout), "av_channel_layout_copy", subject);
+            } else {
+                av_channel_layout_default(outLayout, output.channels());
+            }
+            try {
+                ret = swr_alloc_set_opts2(swrHolder, outLayout, outputFormatId, output.sampleRate(),
+                    inLayout, inputFormatId, input.sampleRate(), 0, MemorySegment.NULL);
+            } finally {
+                av_channel_layout_uninit(outLayout);
+            }
+        }
+        if (ret < 0) {
+            // On failure the context has already been freed through the holder.
+            pool.forget(swr);
+            swr = MemorySegment.NULL;
+        }
+        check(ret, "swr_alloc_set_opts2", subject);
+        check(swr_init(swr), "swr_init", subject);
+    }
+
+    public PcmFormat inputFormat() {
+        return input;
+    }
+
+    public PcmFormat outputFormat() {
+        return output;
+    }
+
+    /**
+     * Sets the {@link PcmChunk#startSample()} of the next chunk produced; later chunks continue
+     * from there. Starts at 0.
+     */
+    public void setNextSample(long sample) {
+        this.nextSample = sample;
+    }
+
+    /**
+     * Input buffered inside the resampler, in output samples; it comes out with later input or
+     * {@link #flush()}.
+     */
+    public long delaySamples() {
+        ensureOpen();
+        return swr_get_delay(swr, output.sampleRate());
+    }
+
+    /**
+     * Converts a chunk, e.g. one produced by {@link AudioDecoder}.
+     */
+    public PcmChunk convert(PcmChunk chunk) {
+        if (!chunk.format().equals(input)) {
+            throw new IllegalArgumentException("Chunk format " + chunk.format() + " does not match resampler input " + input);
+        }
+        return convert(chunk.planes(), chunk.samples());
+    }
+
+    /**
+     * Converts interleaved input (or the single plane of mono planar input).
+     *
+     * @param data at least {@code samples} sample frames of input
+     * @param samples samples per channel in {@code data}
+     * @return the converted samples available so far, possibly none while the filter fills up
+     */
+    public PcmChunk convert(MemorySegment data, int samples) {
+        ensureOpen();
+        requirePlanes(1);
+        long planeBytes = checkPlane(data, samples);
+        prepareStaging(data.isNative() ? 0 : 1, planeBytes);
+        setInput(0, data, planeBytes, 0);
+        return convertPointers(inPointers, samples);
+    }
+
+    /**
+     * Converts input given as one segment per channel for planar formats, or a single
+     * interleaved segment for packed formats.
+     */
+    public PcmChunk convert(List<MemorySegment> planes, int samples) {
+        ensureOpen();
+        requirePlanes(planes.size());
+        long planeBytes = 0;
+        int heapPlanes = 0;
+        for (int i = 0; i < planes.size(); i++) {
+            MemorySegment plane = planes.get(i);
+            planeBytes = checkPlane(plane, samples);
+            if (!plane.isNative()) heapPlanes++;
+        }
+        prepareStaging(heapPlanes, planeBytes);
+        int staged = 0;
+        for (int i = 0; i < planes.size(); i++) {
+            staged = setInput(i, planes.get(i), planeBytes, staged);
+        }
+        return convertPointers(inPointers, samples);
+    }
+
+    private void requirePlanes(int count) {
+        int expectedPlanes = input.sampleFormat().isPlanar() ? input.channels() : 1;
+        if (count != expectedPlanes) {
+            throw new IllegalArgumentException("Expected " + expectedPlanes + " input plane(s), got " + count);
+        }
+    }
+
+    /** Bytes {@code samples} take in one input plane, after checking {@code plane} holds them. */
+    private long checkPlane(MemorySegment plane, int samples) {
+        long planeBytes = (long) samples * (input.sampleFormat().isPlanar()
+            ? input.sampleFormat().getBytesPerSample() : input.frameBytes());
+        if (plane.byteSize() < planeBytes) {
+            throw new IllegalArgumentException("Input plane holds " + plane.byteSize() + " bytes, " + samples + " samples need " + planeBytes);
+        }
+        return planeBytes;
+    }
+
+    /** Makes room for {@code heapPlanes} planes of heap input, recutting the slices only when the size changes. */
+    private void prepareStaging(int heapPlanes, long planeBytes) {
+        if (heapPlanes == 0) return;
+        if (heapPlanes * planeBytes > staging.byteSize()) {
+            staging = arena.allocate(Math.max(heapPlanes * planeBytes, staging.byteSize() * 2));
+            stagedPlaneBytes = -1;
+        }
+        if (planeBytes != stagedPlaneBytes) {
+            for (int i = 0; i < stagingPlanes.length; i++) {
+                stagingPlanes[i] = ((i + 1) * planeBytes <= staging.byteSize())
+                    ? staging.asSlice(i * planeBytes, planeBytes) : null;
+            }
+            stagedPlaneBytes = planeBytes;
+        }
+    }
+
+    /** Points input plane {@code index} at {@code plane}, or at a native copy of it; returns the staging slices used. */
+    private int setInput(int index, MemorySegment plane, long planeBytes, int staged) {
+        if (plane.isNative()) {
+            inPointers.setAtIndex(C_POINTER, index, plane);
+            return staged;
+        }
+        MemorySegment copy = stagingPlanes[staged];
+        MemorySegment.copy(plane, 0, copy, 0, planeBytes);
+        inPointers.setAtIndex(C_POINTER, index, copy);
+        return staged + 1;
+    }
+
+    /**
+     * Converts input given as a native array of plane pointers, such as {@code AVFrame.extended_data}.
+     */
+    PcmChunk convertPointers(MemorySegment pointers, int samples) {
+        ensureOpen();
+        ensureCapacity(swr_get_out_samples(swr, samples));
+        int produced = check(swr_convert(swr, outPointers, capacity, pointers, samples), "swr_convert", subject);
+        return chunk(produced);
+    }
+
+    /**
+     * Drains the samples still held in the filter at end of stream. The resampler can be used
+     * again afterwards as if freshly created.
+     *
+     * @return the remaining samples, possibly none
+     */
+    public PcmChunk flush() {
+        ensureOpen();
+        ensureCapacity(swr_get_out_samples(swr, 0));
+        int produced = check(swr_convert(swr, outPointers, capacity, MemorySegment.NULL, 0), "swr_convert", subject);
+        return chunk(produced);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Resampler is closed.");
+        }
+    }
+
+    private void ensureCapacity(int samples) {
+        if (samples <= capacity) return;
+        int newCapacity = Math.max(MIN_CAPACITY_SAMPLES, samples + samples / 4);
+        if (capacity > 0) {
+            // av_samples_alloc places every plane in one block owned by the first pointer.
+            av_freep(outPointers);
+            capacity = 0;
+        }
+        check(av_samples_alloc(outPointers, MemorySegment.NULL, output.channels(), newCapacity, outputFormatId, 0),
+            "av_samples_alloc", subject);
+        capacity = newCapacity;
+        slicedSamples = -1; // the planes moved
+    }
+
+    private PcmChunk chunk(int samples) {
+        if (samples != slicedSamples) {
+            long planeBytes = (long) samples * (output.sampleFormat().isPlanar()
+                ? output.sampleFormat().getBytesPerSample() : output.frameBytes());
+            for (int p = 0; p < chunk.planes().size(); p++) {
+                chunk.setPlane(p, (samples == 0) ? MemorySegment.NULL
+                    : outPointers.getAtIndex(C_POINTER, p).asSlice(0, planeBytes));
+            }
+            slicedSamples = samples;
+        }
+        chunk.update(samples, nextSample);
+        nextSample += samples;
+        return chunk;
+    }
+
+    /**
+     * Releases the native buffers and returns the resampler context to the pool. Chunks returned
+     * earlier become invalid.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (capacity > 0) av_freep(outPointers);
+        pool.release(swr);
+        arena.close();
+    }
+}
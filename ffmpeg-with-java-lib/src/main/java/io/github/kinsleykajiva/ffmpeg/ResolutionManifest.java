@@ -0,0 +1,174 @@
+package io.github.kinsleykajiva.ffmpeg;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What {@link FFmpegBinary} and {@link NativeLibraries} resolved for one configuration (OS, bin
+ * path, {@code PATH}): the ffmpeg and ffprobe executables, the shared libraries, the
+ * {@code ffmpeg -version} output and the encoder list, with the encoders flagged experimental.
+ * It is kept as a JSON file so later JVMs skip the directory scans and process launches. Each
+ * recorded file is stamped with its modification time and that of every directory the search
+ * for it visited; on load any difference, such as an upgraded ffmpeg or a library added to a
+ * directory searched before the one it was found in, discards the manifest. A manifest kept in
+ * memory only is not stamped, since it never outlives the directories it describes. Snapshots
+ * are immutable and replaced whole, so readers never see a partial update.
+ */
+final class ResolutionManifest {
+
+    private static final int FORMAT = 2;
+    private static final Gson GSON = new Gson();
+
+    /**
+     * @param files resolved absolute paths by name ({@code ffmpeg}, {@code ffprobe}, {@code lib:avutil-60}, ...)
+     * @param stamps modification time of every recorded file and the directories searched for it (0 if absent)
+     */
+    private record Snapshot(int format, String configuration, Map<String, String> files, Map<String, Long> stamps,
+                            String versionOutput, List<String> encoders, List<String> experimentalEncoders) {}
+
+    private final String configuration;
+    private final Path file;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Loads the manifest for {@code configuration} from {@code directory} (null keeps it in memory
+     * only), starting empty if there is none or it is stale.
+     */
+    ResolutionManifest(Path directory, String configuration) {
+        this.configuration = configuration;
+        this.file = (directory != null) ? directory.resolve(digest(configuration) + ".json") : null;
+        Snapshot loaded = read();
+        if (loaded == null) {
+            loaded = new Snapshot(FORMAT, configuration, Map.of(), Map.of(), null, null, null);
+        }
+        this.snapshot = loaded;
+    }
+
+    /** A recorded file that still exists, or null. */
+    File file(String name) {
+        String path = snapshot.files().get(name);
+        if (path == null) return null;
+        File recorded = new File(path);
+        return recorded.isFile() ? recorded : null;
+    }
+
+    String versionOutput() {
+        return snapshot.versionOutput();
+    }
+
+    List<String> encoders() {
+        return snapshot.encoders();
+    }
+
+    List<String> experimentalEncoders() {
+        return snapshot.experimentalEncoders();
+    }
+
+    /**
+     * @param searched the directories the search visited before finding {@code resolved}
+     */
+    synchronized void putFile(String name, File resolved, Collection<File> searched) {
+        Snapshot current = snapshot;
+        Map<String, String> files = new LinkedHashMap<>(current.files());
+        Map<String, Long> stamps = new LinkedHashMap<>(current.stamps());
+        String path = resolved.getAbsolutePath();
+        files.put(name, path);
+        if (file != null) {
+            stamps.put(path, resolved.lastModified());
+            for (File dir : searched) stamps.put(dir.getAbsolutePath(), dir.lastModified());
+        }
+        update(new Snapshot(FORMAT, configuration, Map.copyOf(files), Map.copyOf(stamps),
+            current.versionOutput(), current.encoders(), current.experimentalEncoders()));
+    }
+
+    synchronized void removeFile(String name) {
+        Snapshot current = snapshot;
+        if (!current.files().containsKey(name)) return;
+        Map<String, String> files = new LinkedHashMap<>(current.files());
+        files.remove(name);
+        update(new Snapshot(FORMAT, configuration, Map.copyOf(files), current.stamps(),
+            current.versionOutput(), current.encoders(), current.experimentalEncoders()));
+    }
+
+    synchronized void putVersionOutput(String versionOutput) {
+        Snapshot current = snapshot;
+        update(new Snapshot(FORMAT, configuration, current.files(), current.stamps(), versionOutput,
+            current.encoders(), current.experimentalEncoders()));
+    }
+
+    synchronized void putEncoders(List<String> encoders, List<String> experimentalEncoders) {
+        Snapshot current = snapshot;
+        update(new Snapshot(FORMAT, configuration, current.files(), current.stamps(),
+            current.versionOutput(), List.copyOf(encoders), List.copyOf(experimentalEncoders)));
+    }
+
+    private void update(Snapshot next) {
+        snapshot = next;
+        write(next);
+    }
+
+    private Snapshot read() {
+        if (file == null || !Files.isRegularFile(file)) return null;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Snapshot stored = GSON.fromJson(reader, Snapshot.class);
+            if (stored == null || stored.format() != FORMAT || !configuration.equals(stored.configuration())
+                || stored.files() == null || stored.stamps() == null) {
+                return null;
+            }
+            for (Map.Entry<String, Long> stamp : stored.stamps().entrySet()) {
+                if (new File(stamp.getKey()).lastModified() != stamp.getValue()) return null;
+            }
+            return stored;
+        } catch (Exception e) {
+            return null; // corrupt or partially written manifest: resolve again
+        }
+    }
+
+    private void write(Snapshot next) {
+        if (file == null) return;
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "manifest", ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    GSON.toJson(next, writer);
+                }
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                // Only left behind if serialisation or the move failed
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // Best-effort; this JVM keeps using the in-memory snapshot
+        }
+    }
+
+    private static String digest(String configuration) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(configuration.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
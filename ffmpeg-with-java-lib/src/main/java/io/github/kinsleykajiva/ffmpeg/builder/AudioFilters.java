@@ -31,6 +31,7 @@ public final class AudioFilters {
 
     /**
      * Resamples the audio to a specific rate.
+     * To resample PCM already held in Java, use {@link io.github.kinsleykajiva.ffmpeg.Resampler}.
      */
     public static String resample(SampleRate rate) {
         return "aresample=" + rate.getRate();
@@ -36,10 +36,16 @@ public class AudioJobBuilder {
     private Long analyzeDuration;
     private final java.util.Map<String, String> metadataTags = new java.util.HashMap<>();
     private long timeoutSeconds = 0;
+    private boolean progressPipe = true;
+    private Double inputDurationSeconds;
+    private Integer logCapacityKb;
+    private long progressIntervalMillis = 0;
     private Double readRate;
     private Consumer<Path> sdpCallback;
     private Runnable startCallback;
     private Consumer<io.github.kinsleykajiva.ffmpeg.model.EncodingResult> finishedCallback;
+    private io.github.kinsleykajiva.ffmpeg.execution.JobScheduler scheduler;
+    private io.github.kinsleykajiva.ffmpeg.model.ExecutionBackend backend = io.github.kinsleykajiva.ffmpeg.model.ExecutionBackend.PROCESS;
 
     public AudioJobBuilder(String inputPath, String outputPath) {
         this.inputPath = inputPath;
@@ -148,11 +154,87 @@ public class AudioJobBuilder {
         return this;
     }
 
+    /**
+     * Chooses how progress is reported. When enabled (the default), FFmpeg writes machine-readable
+     * {@code key=value} progress to stdout via {@code -progress pipe:1 -nostats}; when disabled,
+     * progress is scraped from the human-readable {@code -stats} lines on stderr.
+     */
+    public AudioJobBuilder withProgressPipe(boolean enabled) {
+        this.progressPipe = enabled;
+        return this;
+    }
+
+    /**
+     * Supplies already-probed input metadata so progress can report a percentage and ETA
+     * without probing the input again.
+     */
+    public AudioJobBuilder withInputMetadata(io.github.kinsleykajiva.ffmpeg.model.AudioMetadata metadata) {
+        this.inputDurationSeconds = (metadata != null) ? metadata.durationSeconds() : null;
+        return this;
+    }
+
+    /**
+     * Sets the input duration used for progress percentage and ETA.
+     * If neither this nor {@link #withInputMetadata} is set and a progress listener is registered,
+     * the input is probed once when the job starts.
+     */
+    public AudioJobBuilder withInputDuration(double seconds) {
+        this.inputDurationSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Sets how many kilobytes of the most recent FFmpeg log are kept for error reporting.
+     * Older output is discarded, so memory stays constant for long-running streams.
+     */
+    public AudioJobBuilder withLogCapacity(int kilobytes) {
+        if (kilobytes < 1) {
+            throw new IllegalArgumentException("Log capacity must be at least 1 KB. Provided: " + kilobytes);
+        }
+        this.logCapacityKb = kilobytes;
+        return this;
+    }
+
+    /**
+     * Sets the minimum time between two progress/stats callbacks. Updates arriving in between
+     * are coalesced so listeners only ever see the latest values.
+     */
+    public AudioJobBuilder withProgressInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Progress interval cannot be negative. Provided: " + millis);
+        }
+        this.progressIntervalMillis = millis;
+        return this;
+    }
+
     public AudioJobBuilder timeout(long seconds) {
         this.timeoutSeconds = seconds;
         return this;
     }
 
+    /**
+     * Sets the scheduler that admits this job when executed asynchronously.
+     * Defaults to {@link FFmpegExecutor#getDefaultScheduler()}.
+     */
+    public AudioJobBuilder withScheduler(io.github.kinsleykajiva.ffmpeg.execution.JobScheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    /**
+     * Selects where the job runs. With {@link io.github.kinsleykajiva.ffmpeg.model.ExecutionBackend#IN_PROCESS}
+     * a plain file-to-file transcode is decoded, encoded and muxed inside the JVM; jobs using
+     * filters, stream destinations, live input or SDP output, or whose encoder or muxer the
+     * native libraries lack, still run as an FFmpeg process.
+     */
+    public AudioJobBuilder withExecutionBackend(io.github.kinsleykajiva.ffmpeg.model.ExecutionBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Execution backend cannot be null.");
+        }
+        this.backend = backend;
+        return this;
+    }
+
     /**
      * Callback triggered when the SDP file is successfully created.
      */
@@ -178,7 +260,8 @@ public class AudioJobBuilder {
     }
 
     /**
-     * Sets a metadata tag (e.g., title, artist, album).
+     * Sets a metadata tag (e.g., title, artist, album), overriding the tag of the same name
+     * copied from the input.
      */
     public AudioJobBuilder withMetadata(String key, String value) {
         this.metadataTags.put(key, value);
@@ -194,7 +277,10 @@ public class AudioJobBuilder {
         
         io.github.kinsleykajiva.ffmpeg.model.EncodingResult result;
         try {
-            result = FFmpegExecutor.execute(buildCommand(), progressListener, statsListener, timeoutSeconds);
+            io.github.kinsleykajiva.ffmpeg.execution.InProcessTask task = inProcessTask();
+            result = (task != null)
+                ? FFmpegExecutor.execute(task, progressListener, statsListener, executionOptions())
+                : FFmpegExecutor.execute(buildCommand(), progressListener, statsListener, executionOptions());
         } catch (Exception e) {
             // Create a failed result if possible or rethrow
             throw e; 
@@ -211,13 +297,26 @@ public class AudioJobBuilder {
 
     /**
      * Executes the job asynchronously.
+     * Cancelling the returned future stops the FFmpeg process.
      */
     public CompletableFuture<io.github.kinsleykajiva.ffmpeg.model.EncodingResult> executeAsync() {
+        return start().result();
+    }
+
+    /**
+     * Submits the job asynchronously and returns a handle to stop, kill, pause or resume
+     * the FFmpeg process and read its live counters.
+     */
+    public io.github.kinsleykajiva.ffmpeg.execution.JobHandle start() {
         validate();
         
         if (startCallback != null) startCallback.run();
 
-        CompletableFuture<io.github.kinsleykajiva.ffmpeg.model.EncodingResult> future = FFmpegExecutor.executeAsync(buildCommand(), progressListener, statsListener, timeoutSeconds);
+        io.github.kinsleykajiva.ffmpeg.execution.InProcessTask task = inProcessTask();
+        io.github.kinsleykajiva.ffmpeg.execution.JobHandle handle = (task != null)
+            ? FFmpegExecutor.submit(task, progressListener, statsListener, executionOptions())
+            : FFmpegExecutor.submit(buildCommand(), progressListener, statsListener, executionOptions());
+        CompletableFuture<io.github.kinsleykajiva.ffmpeg.model.EncodingResult> future = handle.result();
         
         // If an SDP callback is registered, we should check for the file shortly after start
         if (sdpPath != null && sdpCallback != null) {
@@ -244,7 +343,7 @@ public class AudioJobBuilder {
             });
         }
         
-        return future;
+        return handle;
     }
 
     /**
@@ -252,8 +351,11 @@ public class AudioJobBuilder {
      */
     public void execute(FFmpegCallback callback) {
         validate();
-        List<String> cmd = buildCommand();
-        callback.onStart(String.join(" ", cmd));
+        if (inProcessTask() != null) {
+            callback.onStart("in-process: " + inputPath + " -> " + outputPath);
+        } else {
+            callback.onStart(String.join(" ", buildCommand()));
+        }
         
         executeAsync()
             .thenAccept(callback::onSuccess)
@@ -281,6 +383,109 @@ public class AudioJobBuilder {
                 parent.mkdirs();
             }
         }
+
+        // Rejects a missing encoder or an unsupported rate/channel count before any process starts.
+        selectEncoder();
+    }
+
+    /**
+     * The encoder for the chosen codec, or an alternative if the FFmpeg build lacks it; null when
+     * no codec was chosen.
+     *
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.CodecException if no suitable encoder is available
+     */
+    private io.github.kinsleykajiva.ffmpeg.model.EncoderInfo selectEncoder() {
+        if (codec == null) return null;
+        return io.github.kinsleykajiva.ffmpeg.CodecRegistry.get().select(codec,
+            sampleRate != null ? sampleRate.getRate() : 0,
+            channelLayout != null ? Integer.parseInt(channelLayout.getChannels()) : 0);
+    }
+
+    private io.github.kinsleykajiva.ffmpeg.execution.ExecutionOptions executionOptions() {
+        io.github.kinsleykajiva.ffmpeg.execution.ExecutionOptions options =
+            io.github.kinsleykajiva.ffmpeg.execution.ExecutionOptions.defaults();
+        if (logCapacityKb != null) {
+            options = options.withLogCapacity(logCapacityKb * 1024);
+        }
+        return options
+            .withTimeout(timeoutSeconds)
+            .withProgressInterval(progressIntervalMillis)
+            .withScheduler(scheduler)
+            .withExpectedDuration(this::expectedOutputDuration);
+    }
+
+    /**
+     * Expected output duration in seconds (0 if unknown), after applying any atrim filters.
+     * Runs once the job has started, so probing here delays neither the caller of executeAsync
+     * nor the encode. Live and network inputs have no duration to probe.
+     */
+    private double expectedOutputDuration() {
+        if (inputDurationSeconds == null && (isLiveSource || !new java.io.File(inputPath).isFile())) return 0;
+        double duration = (inputDurationSeconds != null)
+            ? inputDurationSeconds
+            : io.github.kinsleykajiva.ffmpeg.FFmpeg.probeDuration(inputPath);
+        for (String filter : filters) {
+            if (filter.startsWith("atrim=")) {
+                duration = applyTrim(filter.substring("atrim=".length()), duration);
+            }
+        }
+        return Math.max(0, duration);
+    }
+
+    private static double applyTrim(String options, double duration) {
+        double start = 0;
+        Double end = null;
+        Double length = null;
+        for (String option : options.split(":")) {
+            int eq = option.indexOf('=');
+            if (eq < 0) continue;
+            String key = option.substring(0, eq);
+            try {
+                double value = Double.parseDouble(option.substring(eq + 1));
+                switch (key) {
+                    case "start", "starti" -> start = value;
+                    case "end", "endi" -> end = value;
+                    case "duration", "durationi" -> length = value;
+                    default -> { }
+                }
+            } catch (NumberFormatException ignored) {
+                // Time-string values (e.g. 00:01:30) are left to FFmpeg; keep the untrimmed estimate
+            }
+        }
+        double trimmed = duration - start;
+        if (end != null) trimmed = Math.min(trimmed, end - start);
+        if (length != null) trimmed = Math.min(trimmed, length);
+        return trimmed;
+    }
+
+    /**
+     * The in-process equivalent of this job, or null if it must run as a process.
+     */
+    private io.github.kinsleykajiva.ffmpeg.execution.InProcessTask inProcessTask() {
+        if (backend != io.github.kinsleykajiva.ffmpeg.model.ExecutionBackend.IN_PROCESS) return null;
+        // There are no libavfilter bindings, and network output and live pacing need the CLI.
+        if (!filters.isEmpty() || streamDestination != null || isLiveSource || sdpPath != null
+            || outputPath == null || writesToStdout() || probeSize != null || analyzeDuration != null) {
+            return null;
+        }
+        io.github.kinsleykajiva.ffmpeg.model.EncoderInfo encoder = selectEncoder();
+        io.github.kinsleykajiva.ffmpeg.model.TranscodeSpec spec = new io.github.kinsleykajiva.ffmpeg.model.TranscodeSpec(
+            inputPath,
+            outputPath,
+            encoder != null ? encoder.name() : null,
+            io.github.kinsleykajiva.ffmpeg.model.TranscodeSpec.parseBitrate(bitrate),
+            sampleRate != null ? sampleRate.getRate() : 0,
+            channelLayout != null ? Integer.parseInt(channelLayout.getChannels()) : 0,
+            metadataTags,
+            null,
+            encoder != null && encoder.experimental());
+        return io.github.kinsleykajiva.ffmpeg.InProcessTranscoder.canTranscode(spec)
+            ? io.github.kinsleykajiva.ffmpeg.InProcessTranscoder.task(spec)
+            : null;
+    }
+
+    private boolean writesToStdout() {
+        return outputPath != null && (outputPath.equals("-") || outputPath.startsWith("pipe:"));
     }
 
     private List<String> buildCommand() {
@@ -319,14 +524,26 @@ public class AudioJobBuilder {
         }
 
         cmd.add("-y"); // Overwrite
-        cmd.add("-stats"); // Periodically print progress
+        // stdout can only carry progress when the output itself is not written there
+        if (progressPipe && !writesToStdout()) {
+            cmd.add("-progress");
+            cmd.add("pipe:1");
+            cmd.add("-nostats");
+        } else {
+            cmd.add("-stats"); // Periodically print progress
+        }
         cmd.add("-i");
         cmd.add(inputPath);
 
         // Encoding Parameters
-        if (codec != null) {
+        io.github.kinsleykajiva.ffmpeg.model.EncoderInfo encoder = selectEncoder();
+        if (encoder != null) {
             cmd.add("-c:a");
-            cmd.add(codec.getCodecName());
+            cmd.add(encoder.name());
+            if (encoder.experimental()) {
+                cmd.add("-strict");
+                cmd.add("experimental");
+            }
         }
 
         if (bitrate != null) {
@@ -11,6 +11,11 @@ public final class CodecException extends FFmpegException {
         this.codec = codec;
     }
 
+    public CodecException(String codec, String message) {
+        super(message);
+        this.codec = codec;
+    }
+
     public String getCodec() {
         return codec;
     }
@@ -1,16 +1,41 @@
 package io.github.kinsleykajiva.ffmpeg.exception;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Thrown when a command execution fails with a non-zero exit code.
  */
 public final class ExecutionException extends FFmpegException {
     private final int exitCode;
     private final String stderr;
+    // ArrayList rather than List so the field stays serializable.
+    private final ArrayList<String> errorLines;
 
     public ExecutionException(int exitCode, String stderr) {
+        this(exitCode, stderr, List.of());
+    }
+
+    /**
+     * For failures that did not come from an exit code, keeping the underlying cause.
+     */
+    public ExecutionException(int exitCode, String stderr, Throwable cause) {
+        super("FFmpeg command failed with exit code " + exitCode + ". Stderr: " + stderr, cause);
+        this.exitCode = exitCode;
+        this.stderr = stderr;
+        this.errorLines = new ArrayList<>();
+    }
+
+    /**
+     * @param stderr the retained (possibly truncated) tail of the process log
+     * @param errorLines log lines classified as errors, oldest first
+     */
+    public ExecutionException(int exitCode, String stderr, List<String> errorLines) {
         super("FFmpeg command failed with exit code " + exitCode + ". Stderr: " + stderr);
         this.exitCode = exitCode;
         this.stderr = stderr;
+        this.errorLines = new ArrayList<>(errorLines);
     }
 
     public int getExitCode() {
@@ -20,4 +45,8 @@ public final class ExecutionException extends FFmpegException {
     public String getStderr() {
         return stderr;
     }
+
+    public List<String> getErrorLines() {
+        return Collections.unmodifiableList(errorLines);
+    }
 }
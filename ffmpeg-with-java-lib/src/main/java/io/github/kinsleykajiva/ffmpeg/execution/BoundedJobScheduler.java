@@ -0,0 +1,164 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import io.github.kinsleykajiva.ffmpeg.model.SchedulerStats;
+
+/**
+ * A {@link JobScheduler} that caps the number of concurrently running FFmpeg processes
+ * and queues excess jobs in FIFO order up to a fixed capacity.
+ * Once the queue is full, new submissions are rejected so callers feel backpressure
+ * instead of the machine being oversubscribed. Cancelling the future of a queued job
+ * withdraws it from the queue, and its supplier is never called.
+ */
+public final class BoundedJobScheduler implements JobScheduler {
+
+    // Admitted jobs are started on a virtual thread so a job that completes synchronously
+    // cannot recurse back into the drain loop.
+    private static final ExecutorService DISPATCHER = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final ArrayDeque<PendingJob<?>> queue = new ArrayDeque<>();
+
+    private int running;
+    private long completed;
+    private long rejected;
+    private long admitted;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * @param maxConcurrent maximum number of jobs running at the same time (at least 1)
+     * @param maxQueued maximum number of jobs waiting for admission (0 rejects anything over the limit)
+     */
+    public BoundedJobScheduler(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1. Provided: " + maxConcurrent);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued cannot be negative. Provided: " + maxQueued);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Sizes the scheduler from a core budget.
+     *
+     * @param cores number of cores FFmpeg processes may use in total
+     * @param threadsPerJob cores a single job is expected to keep busy
+     */
+    public static BoundedJobScheduler forCpuBudget(int cores, int threadsPerJob) {
+        if (cores < 1 || threadsPerJob < 1) {
+            throw new IllegalArgumentException("Core budget and threads per job must be positive.");
+        }
+        int concurrent = Math.max(1, cores / threadsPerJob);
+        return new BoundedJobScheduler(concurrent, concurrent * 64);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> job) {
+        PendingJob<T> pending = new PendingJob<>(job);
+        synchronized (this) {
+            if (running < maxConcurrent && queue.isEmpty()) {
+                admit(pending);
+            } else if (queue.size() < maxQueued) {
+                queue.add(pending);
+                pending.withdrawOnCancel();
+                return pending.result;
+            } else {
+                rejected++;
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Job queue is full (" + maxQueued + " waiting, " + running + " running)."));
+            }
+        }
+        DISPATCHER.execute(pending::start);
+        return pending.result;
+    }
+
+    @Override
+    public synchronized int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized int runningJobs() {
+        return running;
+    }
+
+    @Override
+    public synchronized SchedulerStats stats() {
+        double avgWaitMillis = admitted == 0 ? 0 : (totalWaitNanos / (double) admitted) / 1_000_000.0;
+        return new SchedulerStats(maxConcurrent, running, queue.size(), completed, rejected,
+            avgWaitMillis, maxWaitNanos / 1_000_000);
+    }
+
+    // Caller must hold the monitor.
+    private void admit(PendingJob<?> pending) {
+        running++;
+        admitted++;
+        long waited = System.nanoTime() - pending.enqueuedAt;
+        totalWaitNanos += waited;
+        maxWaitNanos = Math.max(maxWaitNanos, waited);
+    }
+
+    private synchronized void withdraw(PendingJob<?> pending) {
+        queue.remove(pending);
+    }
+
+    private void release() {
+        PendingJob<?> next;
+        synchronized (this) {
+            running--;
+            completed++;
+            next = queue.poll();
+            if (next == null) return;
+            admit(next);
+        }
+        DISPATCHER.execute(next::start);
+    }
+
+    private final class PendingJob<T> {
+        private final Supplier<CompletableFuture<T>> job;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+
+        PendingJob(Supplier<CompletableFuture<T>> job) {
+            this.job = job;
+        }
+
+        void withdrawOnCancel() {
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) withdraw(this);
+            });
+        }
+
+        void start() {
+            if (result.isDone()) {
+                // Cancelled after it was admitted; hand the slot straight on.
+                release();
+                return;
+            }
+            CompletableFuture<T> work;
+            try {
+                work = job.get();
+            } catch (Throwable t) {
+                work = CompletableFuture.failedFuture(t);
+            }
+            work.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Per-job execution settings passed to {@link FFmpegExecutor}.
+ *
+ * @param timeoutSeconds kill the process after this many seconds (0 disables the timeout)
+ * @param expectedDurationSeconds supplies the expected output duration used for percentage and ETA;
+ *                                resolved lazily on the job thread, may be null or return 0 if unknown
+ * @param scheduler admits async executions (null uses {@link FFmpegExecutor#getDefaultScheduler()})
+ * @param logCapacityChars how much of the most recent process log to retain for error reporting
+ * @param progressIntervalMillis minimum time between two deliveries to the progress listeners
+ */
+public record ExecutionOptions(
+    long timeoutSeconds,
+    DoubleSupplier expectedDurationSeconds,
+    JobScheduler scheduler,
+    int logCapacityChars,
+    long progressIntervalMillis
+) {
+    public ExecutionOptions {
+        if (logCapacityChars < 1) {
+            throw new IllegalArgumentException("Log capacity must be positive. Provided: " + logCapacityChars);
+        }
+        if (progressIntervalMillis < 0) {
+            throw new IllegalArgumentException("Progress interval cannot be negative. Provided: " + progressIntervalMillis);
+        }
+    }
+
+    public static ExecutionOptions defaults() {
+        return new ExecutionOptions(0, null, null, LogBuffer.DEFAULT_CAPACITY, 0);
+    }
+
+    public ExecutionOptions withTimeout(long seconds) {
+        return new ExecutionOptions(seconds, expectedDurationSeconds, scheduler, logCapacityChars, progressIntervalMillis);
+    }
+
+    public ExecutionOptions withExpectedDuration(double seconds) {
+        return withExpectedDuration(() -> seconds);
+    }
+
+    public ExecutionOptions withExpectedDuration(DoubleSupplier seconds) {
+        return new ExecutionOptions(timeoutSeconds, seconds, scheduler, logCapacityChars, progressIntervalMillis);
+    }
+
+    public ExecutionOptions withScheduler(JobScheduler scheduler) {
+        return new ExecutionOptions(timeoutSeconds, expectedDurationSeconds, scheduler, logCapacityChars, progressIntervalMillis);
+    }
+
+    public ExecutionOptions withLogCapacity(int chars) {
+        return new ExecutionOptions(timeoutSeconds, expectedDurationSeconds, scheduler, chars, progressIntervalMillis);
+    }
+
+    public ExecutionOptions withProgressInterval(long millis) {
+        return new ExecutionOptions(timeoutSeconds, expectedDurationSeconds, scheduler, logCapacityChars, millis);
+    }
+}
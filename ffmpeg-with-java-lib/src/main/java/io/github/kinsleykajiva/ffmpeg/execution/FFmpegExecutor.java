@@ -5,10 +5,12 @@ import java.io.InputStreamReader;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import io.github.kinsleykajiva.ffmpeg.exception.ExecutionException;
+import io.github.kinsleykajiva.ffmpeg.exception.FFmpegException;
 import io.github.kinsleykajiva.ffmpeg.exception.TimeoutException;
 import io.github.kinsleykajiva.ffmpeg.model.EncodingResult;
 
@@ -17,88 +19,314 @@ import io.github.kinsleykajiva.ffmpeg.model.EncodingResult;
  */
 public class FFmpegExecutor {
 
-    // Regex to parse FFmpeg's progress output. Works for both video and audio-only streams.
+    // Regex to parse FFmpeg's human-readable -stats output when -progress is not in use.
+    // Works for both video and audio-only streams.
     // Captures: frame (optional), bitrate, and speed.
     private static final Pattern PROGRESS_PATTERN = Pattern.compile(
         "(?:frame=\\s*(\\d+)|(?:size|time|out_time)=\\s*\\S+).*bitrate=\\s*([\\d\\.]+)kbits/s.*speed=\\s*([\\d\\.]+)x"
     );
 
-    private static final ExecutorService CALLBACK_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    // Processed output time from the -stats line (time=HH:MM:SS.xx).
+    private static final Pattern TIME_PATTERN = Pattern.compile("time=\\s*(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+
+    private static volatile JobScheduler defaultScheduler = JobScheduler.cpuBound();
+
+    // In-process jobs spend their time in native code, so they run on platform threads. The
+    // threads are reused so each keeps its pooled native packets, frames and resamplers warm.
+    private static final ExecutorService IN_PROCESS_THREADS = Executors.newCachedThreadPool(
+        Thread.ofPlatform().name("ffmpeg-in-process-", 0).daemon().factory());
+
+    /**
+     * Replaces the scheduler used by async executions that do not specify their own.
+     */
+    public static void setDefaultScheduler(JobScheduler scheduler) {
+        if (scheduler == null) throw new IllegalArgumentException("Scheduler cannot be null.");
+        defaultScheduler = scheduler;
+    }
+
+    public static JobScheduler getDefaultScheduler() {
+        return defaultScheduler;
+    }
 
     /**
      * Executes the command synchronously, with optional timeout.
-     * Output is drained on a background thread to avoid pipe-buffer deadlocks.
      */
     public static EncodingResult execute(List<String> args,
                                          OnProgressListener progressListener,
                                          OnStreamStatsListener statsListener,
                                          long timeoutSeconds) {
+        return execute(args, progressListener, statsListener, ExecutionOptions.defaults().withTimeout(timeoutSeconds));
+    }
+
+    /**
+     * Executes the command synchronously using the given options.
+     * The calling thread simply waits on the job's future; supervision itself is non-blocking.
+     */
+    public static EncodingResult execute(List<String> args,
+                                         OnProgressListener progressListener,
+                                         OnStreamStatsListener statsListener,
+                                         ExecutionOptions options) {
+        JobHandle handle = newHandle(progressListener, statsListener, options);
+        try {
+            return launch(args, options, handle).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FFmpegException fe) throw fe;
+            throw new ExecutionException(-1, String.valueOf(e.getCause()), e.getCause());
+        }
+    }
+
+    /**
+     * Submits the command to the scheduler in {@code options} and returns a handle for
+     * controlling it. The process is only launched after admission, so queued jobs cost no CPU,
+     * and the job holds its slot until the process exits without pinning a thread.
+     */
+    public static JobHandle submit(List<String> args,
+                                   OnProgressListener progressListener,
+                                   OnStreamStatsListener statsListener,
+                                   ExecutionOptions options) {
+        JobScheduler target = (options.scheduler() != null) ? options.scheduler() : defaultScheduler;
+        JobHandle handle = newHandle(progressListener, statsListener, options);
+        handle.bind(target.submit(() -> launch(args, options, handle)));
+        return handle;
+    }
+
+    /**
+     * Runs an in-process job synchronously with the same progress, timeout and error semantics
+     * as a process job. The task runs on a pooled platform thread, since it spends its time in
+     * native code.
+     */
+    public static EncodingResult execute(InProcessTask task,
+                                         OnProgressListener progressListener,
+                                         OnStreamStatsListener statsListener,
+                                         ExecutionOptions options) {
+        JobHandle handle = newHandle(progressListener, statsListener, options);
+        try {
+            return launch(task, options, handle).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FFmpegException fe) throw fe;
+            // Keep the cause: native and linkage failures are undiagnosable without its stack trace.
+            throw new ExecutionException(-1, String.valueOf(e.getCause()), e.getCause());
+        }
+    }
+
+    /**
+     * Submits an in-process job to the scheduler in {@code options}; it competes for the same
+     * slots as process jobs.
+     */
+    public static JobHandle submit(InProcessTask task,
+                                   OnProgressListener progressListener,
+                                   OnStreamStatsListener statsListener,
+                                   ExecutionOptions options) {
+        JobScheduler target = (options.scheduler() != null) ? options.scheduler() : defaultScheduler;
+        JobHandle handle = newHandle(progressListener, statsListener, options);
+        handle.bind(target.submit(() -> launch(task, options, handle)));
+        return handle;
+    }
+
+    private static JobHandle newHandle(OnProgressListener progressListener,
+                                       OnStreamStatsListener statsListener,
+                                       ExecutionOptions options) {
+        return new JobHandle(new ProgressDispatcher(progressListener, statsListener, options.progressIntervalMillis()));
+    }
+
+    /**
+     * Launches the process and returns immediately with a future for its result.
+     * No thread waits on the process: output is drained by virtual-thread readers, completion is
+     * driven by {@link Process#onExit()} and the timeout is a deadline on the shared {@link TimeoutWheel},
+     * suspended while the job is paused.
+     * If the command contains {@code -progress pipe:1}, progress is parsed from stdout and stderr
+     * is kept apart as the warning log; otherwise both streams are merged and progress is scraped
+     * from the {@code -stats} lines.
+     */
+    private static CompletableFuture<EncodingResult> launch(List<String> args,
+                                                            ExecutionOptions options,
+                                                            JobHandle handle) {
+        if (handle.isCancelled()) {
+            return CompletableFuture.failedFuture(new CancellationException("Job was cancelled before it started."));
+        }
         long startTime = System.currentTimeMillis();
+        long timeoutSeconds = options.timeoutSeconds();
+        ProgressDispatcher dispatcher = handle.dispatcher();
+        boolean progressPipe = usesProgressPipe(args);
         ProcessBuilder pb = new ProcessBuilder(args);
-        pb.redirectErrorStream(true); // merge stderr into stdout
+        pb.redirectErrorStream(!progressPipe); // merge stderr into stdout unless stdout carries progress
 
+        Process process;
         try {
-            Process process = pb.start();
-            StringBuilder output = new StringBuilder();
-
-            // Drain the process output on a dedicated thread to prevent pipe-buffer deadlock.
-            Future<?> readerFuture = Executors.newSingleThreadExecutor().submit(() -> {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.append(line).append("\n");
-                        parseAndNotify(line, progressListener, statsListener);
-                    }
-                } catch (Exception ignored) {}
-            });
+            process = pb.start();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new ExecutionException(-1, e.getMessage()));
+        }
+        if (!handle.attach(process)) {
+            return CompletableFuture.failedFuture(new CancellationException("Job was cancelled before it started."));
+        }
+        LogBuffer output = new LogBuffer(options.logCapacityChars());
+
+        // The expected duration may need a probe; it must not delay the encode, so progress
+        // reports no percentage or ETA until it is known.
+        if (dispatcher.hasProgressListener() && options.expectedDurationSeconds() != null) {
+            Thread.ofVirtual().name("ffmpeg-duration").start(() -> dispatcher.setTotalUs(expectedDurationMicros(options)));
+        }
 
-            // Apply optional timeout: destroy the process after the deadline.
-            if (timeoutSeconds > 0) {
-                boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-                if (!finished) {
+        // Drain the process log to prevent pipe-buffer deadlock.
+        CompletableFuture<Void> logDrained = startReader("ffmpeg-log-reader", () -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    progressPipe ? process.getErrorStream() : process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.appendLine(line);
+                    if (!progressPipe) parseAndNotify(line, dispatcher);
+                }
+            }
+        });
+
+        // In progress mode stdout only carries key=value blocks.
+        CompletableFuture<Void> progressDrained = progressPipe
+            ? startReader("ffmpeg-progress", () -> {
+                try (var in = process.getInputStream()) {
+                    new ProgressParser().consume(in, (progress, end) -> dispatcher.publish(progress.outTimeUs,
+                        progress.totalSize, progress.frame, progress.bitrateKbps, progress.speed, progress.dropFrames,
+                        progress.dupFrames));
+                }
+            })
+            : CompletableFuture.completedFuture(null);
+
+        // Apply optional timeout: destroy the process after the deadline (paused time excluded).
+        AtomicBoolean timedOut = new AtomicBoolean();
+        if (timeoutSeconds > 0) {
+            handle.startTimeout(timeoutSeconds, () -> {
+                if (process.isAlive()) {
+                    timedOut.set(true);
                     process.destroyForcibly();
-                    // Wait for the reader to drain any last output before throwing.
-                    try { readerFuture.get(2, TimeUnit.SECONDS); } catch (Exception ignored) {}
-                    throw new TimeoutException(timeoutSeconds);
                 }
+            });
+        }
+
+        return process.onExit().thenCompose(exited -> {
+            handle.cancelTimeout();
+            handle.finished();
+            // Give the readers a bounded window to drain any last output.
+            return CompletableFuture.allOf(logDrained, progressDrained)
+                .completeOnTimeout(null, 5, TimeUnit.SECONDS)
+                .thenApply(ignored -> {
+                    if (timedOut.get()) {
+                        throw new TimeoutException(timeoutSeconds);
+                    }
+                    int exitCode = exited.exitValue();
+                    if (exitCode != 0) {
+                        throw new ExecutionException(exitCode, output.toString(), output.errorLines());
+                    }
+                    return buildResult(args, System.currentTimeMillis() - startTime);
+                });
+        });
+    }
+
+    private static CompletableFuture<EncodingResult> launch(InProcessTask task,
+                                                            ExecutionOptions options,
+                                                            JobHandle handle) {
+        if (!handle.attachInProcess()) {
+            return CompletableFuture.failedFuture(new CancellationException("Job was cancelled before it started."));
+        }
+        long timeoutSeconds = options.timeoutSeconds();
+        ProgressDispatcher dispatcher = handle.dispatcher();
+        if (dispatcher.hasProgressListener()) {
+            dispatcher.setTotalUs(expectedDurationMicros(options));
+        }
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        if (timeoutSeconds > 0) {
+            handle.startTimeout(timeoutSeconds, () -> {
+                timedOut.set(true);
+                handle.abort();
+            });
+        }
+
+        InProcessTask.Context context = new InProcessTask.Context() {
+            @Override
+            public boolean checkpoint() {
+                return handle.checkpoint();
+            }
+
+            @Override
+            public boolean aborted() {
+                return handle.abortRequested();
             }
 
-            // Wait for the process and the reader to both finish.
-            int exitCode = process.waitFor();
-            try { readerFuture.get(5, TimeUnit.SECONDS); } catch (Exception ignored) {}
+            @Override
+            public void progress(long outTimeUs, long totalSize, double speed) {
+                double bitrateKbps = (totalSize > 0 && outTimeUs > 0) ? totalSize * 8_000.0 / outTimeUs : 0;
+                dispatcher.publish(outTimeUs, totalSize, 0, bitrateKbps, speed, 0, 0);
+            }
+        };
 
-            if (exitCode != 0) {
-                throw new ExecutionException(exitCode, output.toString());
+        CompletableFuture<EncodingResult> future = new CompletableFuture<>();
+        IN_PROCESS_THREADS.execute(() -> {
+            try {
+                EncodingResult result = task.run(context);
+                if (timedOut.get()) throw new TimeoutException(timeoutSeconds);
+                future.complete(result);
+            } catch (Throwable t) {
+                future.completeExceptionally(timedOut.get() ? new TimeoutException(timeoutSeconds) : t);
+            } finally {
+                handle.cancelTimeout();
+                handle.finished();
             }
+        });
+        return future;
+    }
 
-            // For streaming destinations the last arg is a URL, not a file path.
-            String lastArg = args.get(args.size() - 1);
-            Path outputPath = (lastArg.startsWith("rtp://")
-                    || lastArg.startsWith("udp://")
-                    || lastArg.startsWith("srt://"))
-                ? null : Path.of(lastArg);
+    private static EncodingResult buildResult(List<String> args, long duration) {
+        // For streaming destinations the last arg is a URL, not a file path.
+        String lastArg = args.get(args.size() - 1);
+        Path outputPath = (lastArg.startsWith("rtp://")
+                || lastArg.startsWith("udp://")
+                || lastArg.startsWith("srt://"))
+            ? null : Path.of(lastArg);
 
-            long duration = System.currentTimeMillis() - startTime;
-            long fileSize = (outputPath != null && outputPath.toFile().exists())
-                ? outputPath.toFile().length() : 0;
+        long fileSize = (outputPath != null && outputPath.toFile().exists())
+            ? outputPath.toFile().length() : 0;
 
-            return new EncodingResult(outputPath, duration, fileSize);
-        } catch (Exception e) {
-            if (e instanceof io.github.kinsleykajiva.ffmpeg.exception.FFmpegException fe) throw fe;
-            throw new ExecutionException(-1, e.getMessage());
-        }
+        return new EncodingResult(outputPath, duration, fileSize);
+    }
+
+    @FunctionalInterface
+    private interface StreamReader {
+        void read() throws Exception;
+    }
+
+    private static CompletableFuture<Void> startReader(String name, StreamReader body) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread.ofVirtual().name(name).start(() -> {
+            try {
+                body.read();
+            } catch (Exception ignored) {
+                // Stream closed underneath us (e.g. process destroyed)
+            } finally {
+                done.complete(null);
+            }
+        });
+        return done;
     }
 
     /**
-     * Executes the command asynchronously, with optional timeout.
+     * Executes the command asynchronously through the default {@link JobScheduler}, with optional timeout.
      */
     public static CompletableFuture<EncodingResult> executeAsync(List<String> args,
                                                                   OnProgressListener progressListener,
                                                                   OnStreamStatsListener statsListener,
                                                                   long timeoutSeconds) {
-        return CompletableFuture.supplyAsync(
-            () -> execute(args, progressListener, statsListener, timeoutSeconds));
+        return executeAsync(args, progressListener, statsListener, ExecutionOptions.defaults().withTimeout(timeoutSeconds));
+    }
+
+    /**
+     * Executes the command asynchronously once the scheduler in {@code options} admits it.
+     * Use {@link #submit} instead to be able to stop, pause or inspect the running job.
+     */
+    public static CompletableFuture<EncodingResult> executeAsync(List<String> args,
+                                                                  OnProgressListener progressListener,
+                                                                  OnStreamStatsListener statsListener,
+                                                                  ExecutionOptions options) {
+        return submit(args, progressListener, statsListener, options).result();
     }
 
     /**
@@ -114,7 +342,22 @@ public class FFmpegExecutor {
         return executeAsync(args, progressListener, statsListener, 0);
     }
 
-    private static boolean parseAndNotify(String line, OnProgressListener progress, OnStreamStatsListener stats) {
+    private static boolean usesProgressPipe(List<String> args) {
+        int idx = args.indexOf("-progress");
+        return idx >= 0 && idx + 1 < args.size() && args.get(idx + 1).startsWith("pipe:1");
+    }
+
+    private static long expectedDurationMicros(ExecutionOptions options) {
+        if (options.expectedDurationSeconds() == null) return 0;
+        try {
+            double seconds = options.expectedDurationSeconds().getAsDouble();
+            return seconds > 0 ? (long) (seconds * 1_000_000) : 0;
+        } catch (Exception e) {
+            return 0; // progress still works, just without percentage and ETA
+        }
+    }
+
+    private static boolean parseAndNotify(String line, ProgressDispatcher dispatcher) {
         Matcher matcher = PROGRESS_PATTERN.matcher(line);
         if (matcher.find()) {
             try {
@@ -123,16 +366,16 @@ public class FFmpegExecutor {
                 double bitrateKbps = Double.parseDouble(matcher.group(2));
                 double speed = Double.parseDouble(matcher.group(3));
 
-                // Dispatch callbacks on virtual threads to avoid blocking the log reader thread
-                CALLBACK_EXECUTOR.submit(() -> {
-                    if (progress != null) {
-                        progress.onProgress(0, frame, bitrateKbps);
-                    }
-                    if (stats != null) {
-                        stats.onStatsUpdate((long)(bitrateKbps * 1000), speed, 0);
-                    }
-                });
+                long outTimeUs = -1;
+                Matcher time = TIME_PATTERN.matcher(line);
+                if (time.find()) {
+                    double seconds = Long.parseLong(time.group(1)) * 3600
+                        + Long.parseLong(time.group(2)) * 60
+                        + Double.parseDouble(time.group(3));
+                    outTimeUs = (long) (seconds * 1_000_000);
+                }
 
+                dispatcher.publish(outTimeUs, -1, frame, bitrateKbps, speed, 0, 0);
                 return true;
             } catch (Exception ignored) {}
         }
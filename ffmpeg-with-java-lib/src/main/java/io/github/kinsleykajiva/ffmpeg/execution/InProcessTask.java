@@ -0,0 +1,49 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import io.github.kinsleykajiva.ffmpeg.model.EncodingResult;
+
+/**
+ * A job that runs inside the JVM instead of as an FFmpeg process, executed through
+ * {@link FFmpegExecutor#execute(InProcessTask, OnProgressListener, OnStreamStatsListener, ExecutionOptions)}
+ * or {@link FFmpegExecutor#submit(InProcessTask, OnProgressListener, OnStreamStatsListener, ExecutionOptions)}.
+ * Control requests from the {@link JobHandle} are cooperative: the task polls its context
+ * between units of work.
+ */
+@FunctionalInterface
+public interface InProcessTask {
+
+    /**
+     * Runs the job to completion on the calling thread.
+     *
+     * @throws io.github.kinsleykajiva.ffmpeg.exception.FFmpegException if the job fails
+     */
+    EncodingResult run(Context context);
+
+    /**
+     * The task's view of its job handle.
+     */
+    interface Context {
+        /**
+         * Blocks while the job is paused.
+         *
+         * @return false once the job has been asked to stop or was killed, after which the task
+         *         should finish (see {@link #aborted()}) and return
+         */
+        boolean checkpoint();
+
+        /**
+         * True if the job was killed or timed out: the task should abandon its output without
+         * finalising it. False after a plain stop, where the output should be finalised.
+         */
+        boolean aborted();
+
+        /**
+         * Reports progress in the same units FFmpeg's {@code -progress} output uses.
+         *
+         * @param outTimeUs output timestamp in microseconds
+         * @param totalSize bytes written so far, or -1 if unknown
+         * @param speed processing speed relative to real time
+         */
+        void progress(long outTimeUs, long totalSize, double speed);
+    }
+}
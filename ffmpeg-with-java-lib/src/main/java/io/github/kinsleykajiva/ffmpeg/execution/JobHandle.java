@@ -0,0 +1,265 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.github.kinsleykajiva.ffmpeg.model.EncodingResult;
+import io.github.kinsleykajiva.ffmpeg.model.ProgressInfo;
+
+/**
+ * Control handle for an asynchronously submitted FFmpeg job.
+ * Besides the result future it allows a graceful stop (FFmpeg finalises the output),
+ * a hard kill, and pausing/resuming the process (POSIX only), and exposes live counters.
+ * Cancelling {@link #result()} stops the process as well.
+ * For {@link InProcessTask} jobs the same requests are delivered cooperatively to the task,
+ * and pausing works on every platform.
+ * The job's timeout only counts running time: its deadline is suspended while the job is paused.
+ */
+public final class JobHandle {
+
+    /**
+     * Lifecycle of a job from submission to exit.
+     */
+    public enum State { QUEUED, RUNNING, PAUSED, STOPPING, FINISHED }
+
+    // After a graceful stop request, FFmpeg gets this long to write its trailer before being killed.
+    private static final long STOP_GRACE_SECONDS = 10;
+
+    private final ProgressDispatcher progress;
+    private CompletableFuture<EncodingResult> result;
+    private Process process;
+    private State state = State.QUEUED;
+    private boolean cancelled;
+    // In-process jobs have no Process; control requests become flags the task polls.
+    private boolean inProcess;
+    private boolean stopRequested;
+    private boolean abortRequested;
+    // Job timeout; disarmed while paused, with the time left kept in timeoutRemainingNanos.
+    private Runnable onTimeout;
+    private TimeoutWheel.Timeout timeout;
+    private long timeoutRemainingNanos;
+    private long timeoutArmedAtNanos;
+
+    JobHandle(ProgressDispatcher progress) {
+        this.progress = progress;
+    }
+
+    public synchronized CompletableFuture<EncodingResult> result() {
+        return result;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /**
+     * OS process id, or -1 while the job is still queued or when it runs in-process.
+     */
+    public synchronized long pid() {
+        return process != null ? process.pid() : -1;
+    }
+
+    /**
+     * Latest progress snapshot, updated whether or not a listener is registered.
+     */
+    public ProgressInfo progress() {
+        return progress.snapshot();
+    }
+
+    /**
+     * Bytes written to the output so far, or -1 if FFmpeg has not reported it.
+     */
+    public long outputBytes() {
+        return progress.totalSize();
+    }
+
+    /**
+     * Asks FFmpeg to finish cleanly by sending {@code q} on stdin, so the container trailer
+     * is written and the partial output stays playable. The process is killed if it has not
+     * exited after a grace period. A queued job is simply cancelled.
+     */
+    public void stop() {
+        Process target;
+        synchronized (this) {
+            if (state == State.FINISHED || state == State.STOPPING) return;
+            if (inProcess) {
+                if (state == State.PAUSED) armTimeout();
+                state = State.STOPPING;
+                stopRequested = true;
+                notifyAll();
+                return;
+            }
+            if (process == null) {
+                cancelQueued();
+                return;
+            }
+            if (state == State.PAUSED) {
+                ProcessSignals.resume(process.pid()); // a stopped process cannot read stdin
+                armTimeout();
+            }
+            state = State.STOPPING;
+            target = process;
+        }
+        try (OutputStream stdin = target.getOutputStream()) {
+            stdin.write('q');
+        } catch (IOException e) {
+            target.destroyForcibly();
+            return;
+        }
+        TimeoutWheel.SHARED.schedule(() -> {
+            if (target.isAlive()) target.destroyForcibly();
+        }, STOP_GRACE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Kills the process immediately; the output is likely left incomplete.
+     */
+    public void kill() {
+        Process target;
+        synchronized (this) {
+            if (state == State.FINISHED) return;
+            if (inProcess) {
+                abort();
+                return;
+            }
+            if (process == null) {
+                cancelQueued();
+                return;
+            }
+            target = process;
+        }
+        target.destroyForcibly();
+    }
+
+    /**
+     * Suspends the running process (SIGSTOP), freeing its CPU without losing progress.
+     * The job's timeout does not advance while it is paused.
+     *
+     * @return true if the process was paused
+     * @throws UnsupportedOperationException on platforms without POSIX signals
+     */
+    public synchronized boolean pause() {
+        if (state != State.RUNNING) return false;
+        if (!inProcess && !ProcessSignals.stop(process.pid())) return false;
+        state = State.PAUSED;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+            timeoutRemainingNanos -= System.nanoTime() - timeoutArmedAtNanos;
+        }
+        return true;
+    }
+
+    /**
+     * Resumes a process previously suspended with {@link #pause()} (SIGCONT).
+     *
+     * @return true if the process was resumed
+     */
+    public synchronized boolean resume() {
+        if (state != State.PAUSED) return false;
+        if (!inProcess && !ProcessSignals.resume(process.pid())) return false;
+        state = State.RUNNING;
+        armTimeout();
+        notifyAll();
+        return true;
+    }
+
+    // --- Executor-side lifecycle ---
+
+    synchronized void bind(CompletableFuture<EncodingResult> future) {
+        this.result = future;
+        future.whenComplete((r, ex) -> {
+            if (ex instanceof CancellationException) stop();
+        });
+    }
+
+    /**
+     * Called once admitted; returns false if the job was cancelled while queued.
+     */
+    synchronized boolean attach(Process process) {
+        if (cancelled) {
+            process.destroyForcibly();
+            return false;
+        }
+        this.process = process;
+        this.state = State.RUNNING;
+        return true;
+    }
+
+    /**
+     * In-process counterpart of {@link #attach(Process)}.
+     */
+    synchronized boolean attachInProcess() {
+        if (cancelled) return false;
+        this.inProcess = true;
+        this.state = State.RUNNING;
+        return true;
+    }
+
+    /**
+     * Runs {@code onTimeout} once the job has been running (not paused) for {@code seconds}.
+     */
+    synchronized void startTimeout(long seconds, Runnable onTimeout) {
+        this.onTimeout = onTimeout;
+        this.timeoutRemainingNanos = TimeUnit.SECONDS.toNanos(seconds);
+        if (state != State.PAUSED) armTimeout();
+    }
+
+    synchronized void cancelTimeout() {
+        if (timeout != null) timeout.cancel();
+        timeout = null;
+        onTimeout = null;
+    }
+
+    /** See {@link InProcessTask.Context#checkpoint()}. */
+    synchronized boolean checkpoint() {
+        while (state == State.PAUSED && !abortRequested) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abortRequested = true;
+            }
+        }
+        return !stopRequested && !abortRequested;
+    }
+
+    synchronized boolean abortRequested() {
+        return abortRequested;
+    }
+
+    /** Kills an in-process job: the task is told to abandon its output. */
+    synchronized void abort() {
+        abortRequested = true;
+        notifyAll();
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    synchronized void finished() {
+        state = State.FINISHED;
+    }
+
+    ProgressDispatcher dispatcher() {
+        return progress;
+    }
+
+    // Caller holds the monitor.
+    private void armTimeout() {
+        if (onTimeout == null || timeout != null) return;
+        timeoutArmedAtNanos = System.nanoTime();
+        timeout = TimeoutWheel.SHARED.schedule(onTimeout, Math.max(0, timeoutRemainingNanos), TimeUnit.NANOSECONDS);
+    }
+
+    // Caller holds the monitor.
+    private void cancelQueued() {
+        cancelled = true;
+        state = State.FINISHED;
+        if (result != null) result.cancel(false);
+    }
+}
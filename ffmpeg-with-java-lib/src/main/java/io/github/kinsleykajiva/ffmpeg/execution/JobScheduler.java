@@ -0,0 +1,47 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import io.github.kinsleykajiva.ffmpeg.model.SchedulerStats;
+
+/**
+ * Admission control for asynchronous FFmpeg jobs.
+ * Implementations decide when a submitted job may start, how many may run at once
+ * and what happens to excess jobs while the limit is reached.
+ */
+public interface JobScheduler {
+
+    /**
+     * Submits a job for execution. The supplier is invoked only once the job is admitted,
+     * and the job counts as running until the future it returns completes.
+     *
+     * @param job starts the work and returns a future that completes when the work is done
+     * @return a future mirroring the outcome of the job; completes exceptionally with
+     *         {@link java.util.concurrent.RejectedExecutionException} if the job could not be queued
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> job);
+
+    /**
+     * Number of jobs waiting for admission.
+     */
+    int queueDepth();
+
+    /**
+     * Number of jobs currently admitted and running.
+     */
+    int runningJobs();
+
+    /**
+     * Returns a point-in-time snapshot of the scheduler counters.
+     */
+    SchedulerStats stats();
+
+    /**
+     * Creates a scheduler sized from the cores available to this JVM,
+     * assuming each FFmpeg process keeps roughly one core busy.
+     */
+    static JobScheduler cpuBound() {
+        return BoundedJobScheduler.forCpuBudget(Runtime.getRuntime().availableProcessors(), 1);
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fixed-size capture of an FFmpeg process log.
+ * Keeps the most recent output in a {@code char[]} ring and, separately, the last few lines
+ * that look like errors, so memory per job is constant however long the process runs.
+ */
+final class LogBuffer {
+
+    static final int DEFAULT_CAPACITY = 64 * 1024;
+    private static final int MAX_ERROR_LINES = 32;
+    private static final int MAX_ERROR_LINE_LENGTH = 512;
+
+    private static final String[] ERROR_MARKERS = {
+        "error", "invalid", "failed", "could not", "cannot", "unable to",
+        "no such file", "not found", "unknown encoder", "unrecognized option", "permission denied"
+    };
+
+    private final char[] ring;
+    private int head;
+    private long written;
+
+    private final ArrayDeque<String> errorLines = new ArrayDeque<>(MAX_ERROR_LINES);
+
+    LogBuffer(int capacityChars) {
+        if (capacityChars < 1) {
+            throw new IllegalArgumentException("Log capacity must be positive. Provided: " + capacityChars);
+        }
+        this.ring = new char[capacityChars];
+    }
+
+    synchronized void appendLine(String line) {
+        append(line);
+        append('\n');
+        if (isError(line)) {
+            if (errorLines.size() == MAX_ERROR_LINES) errorLines.removeFirst();
+            errorLines.addLast(line.length() > MAX_ERROR_LINE_LENGTH ? line.substring(0, MAX_ERROR_LINE_LENGTH) : line);
+        }
+    }
+
+    /**
+     * Lines classified as errors, oldest first (at most {@value #MAX_ERROR_LINES}).
+     */
+    synchronized List<String> errorLines() {
+        return List.copyOf(errorLines);
+    }
+
+    /**
+     * The retained tail of the log, prefixed with a marker when older output was discarded.
+     */
+    @Override
+    public synchronized String toString() {
+        int size = (int) Math.min(written, ring.length);
+        StringBuilder sb = new StringBuilder(size + 48);
+        if (written > ring.length) {
+            sb.append("[... ").append(written - ring.length).append(" earlier characters truncated ...]\n");
+        }
+        int start = (head - size + ring.length) % ring.length;
+        int firstChunk = Math.min(size, ring.length - start);
+        sb.append(ring, start, firstChunk);
+        sb.append(ring, 0, size - firstChunk);
+        return sb.toString();
+    }
+
+    private void append(String s) {
+        int len = s.length();
+        int from = 0;
+        // Only the last ring.length characters of an oversized line can survive.
+        if (len > ring.length) {
+            from = len - ring.length;
+            written += from;
+        }
+        while (from < len) {
+            int chunk = Math.min(len - from, ring.length - head);
+            s.getChars(from, from + chunk, ring, head);
+            from += chunk;
+            written += chunk;
+            head = (head + chunk) % ring.length;
+        }
+    }
+
+    private void append(char c) {
+        ring[head] = c;
+        head = (head + 1) % ring.length;
+        written++;
+    }
+
+    private static boolean isError(String line) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        for (String marker : ERROR_MARKERS) {
+            if (lower.contains(marker)) return true;
+        }
+        return false;
+    }
+}
@@ -1,5 +1,9 @@
 package io.github.kinsleykajiva.ffmpeg.execution;
 
+import java.util.function.Consumer;
+
+import io.github.kinsleykajiva.ffmpeg.model.ProgressInfo;
+
 /**
  * Functional interface for tracking FFmpeg progress.
  */
@@ -12,4 +16,29 @@ public interface OnProgressListener {
      * @param bitrate current processing bitrate
      */
     void onProgress(double percentage, long frame, double bitrate);
+
+    /**
+     * Called with the full progress snapshot, including processed time and ETA.
+     * By default this forwards to {@link #onProgress(double, long, double)}.
+     */
+    default void onProgress(ProgressInfo info) {
+        onProgress(info.percentage(), info.frame(), info.bitrateKbps());
+    }
+
+    /**
+     * Creates a listener that receives the full {@link ProgressInfo} snapshot.
+     */
+    static OnProgressListener detailed(Consumer<ProgressInfo> consumer) {
+        return new OnProgressListener() {
+            @Override
+            public void onProgress(double percentage, long frame, double bitrate) {
+                // Superseded by onProgress(ProgressInfo)
+            }
+
+            @Override
+            public void onProgress(ProgressInfo info) {
+                consumer.accept(info);
+            }
+        };
+    }
 }
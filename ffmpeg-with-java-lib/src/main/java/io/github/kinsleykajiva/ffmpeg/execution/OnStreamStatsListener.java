@@ -13,4 +13,18 @@ public interface OnStreamStatsListener {
      * @param droppedFrames frames dropped due to latency
      */
     void onStatsUpdate(long bitrate, double speed, int droppedFrames);
+
+    /**
+     * Called with updated streaming metrics, including the frames FFmpeg duplicated to keep the
+     * output rate. Only reported with {@code -progress} output; 0 otherwise. Defaults to
+     * {@link #onStatsUpdate(long, double, int)}.
+     *
+     * @param bitrate current bits per second
+     * @param speed processing speed (1.0 is real-time)
+     * @param droppedFrames frames dropped due to latency
+     * @param duplicatedFrames frames duplicated to fill gaps in the input
+     */
+    default void onStatsUpdate(long bitrate, double speed, int droppedFrames, int duplicatedFrames) {
+        onStatsUpdate(bitrate, speed, droppedFrames);
+    }
 }
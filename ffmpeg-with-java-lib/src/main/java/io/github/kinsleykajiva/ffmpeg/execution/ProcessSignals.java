@@ -0,0 +1,58 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+
+import io.github.kinsleykajiva.ffmpeg.FFmpegBinary;
+
+/**
+ * Sends job-control signals to child processes through libc {@code kill(2)}.
+ * The JDK only exposes SIGTERM/SIGKILL via {@link Process#destroy()}, so SIGSTOP/SIGCONT
+ * go through a Panama downcall instead of forking a {@code kill} process.
+ */
+final class ProcessSignals {
+
+    private static final MethodHandle KILL = lookupKill();
+
+    private ProcessSignals() {}
+
+    static boolean isSupported() {
+        return KILL != null;
+    }
+
+    /** Suspends the process (SIGSTOP). */
+    static boolean stop(long pid) {
+        return send(pid, FFmpegBinary.getCurrentOS() == FFmpegBinary.OS.MACOS ? 17 : 19);
+    }
+
+    /** Resumes a suspended process (SIGCONT). */
+    static boolean resume(long pid) {
+        return send(pid, FFmpegBinary.getCurrentOS() == FFmpegBinary.OS.MACOS ? 19 : 18);
+    }
+
+    private static boolean send(long pid, int signal) {
+        if (KILL == null) {
+            throw new UnsupportedOperationException("Pausing processes is not supported on " + FFmpegBinary.getCurrentOS());
+        }
+        try {
+            return (int) KILL.invokeExact((int) pid, signal) == 0;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    private static MethodHandle lookupKill() {
+        if (FFmpegBinary.getCurrentOS() == FFmpegBinary.OS.WINDOWS) return null;
+        try {
+            Linker linker = Linker.nativeLinker();
+            return linker.defaultLookup().find("kill")
+                .map(address -> linker.downcallHandle(address,
+                    FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT)))
+                .orElse(null);
+        } catch (Throwable t) {
+            return null; // native access disabled
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.kinsleykajiva.ffmpeg.model.ProgressInfo;
+
+/**
+ * Per-job, latest-value delivery of progress to listeners.
+ * Readers overwrite a single mutable slot; at most one delivery is in flight on a virtual thread,
+ * and whatever is in the slot when it finishes is delivered next. A slow listener therefore only
+ * causes intermediate updates to be skipped, never queued, and updates are seen in order.
+ */
+final class ProgressDispatcher {
+
+    private final OnProgressListener progressListener;
+    private final OnStreamStatsListener statsListener;
+    private final long minIntervalNanos;
+    private volatile long totalUs;
+
+    // Latest snapshot, guarded by this
+    private long outTimeUs = -1;
+    private long frame;
+    private double bitrateKbps;
+    private double speed;
+    private long droppedFrames;
+    private long duplicatedFrames;
+    private long totalSize = -1;
+    private boolean dirty;
+    private boolean inFlight;
+
+    // Only touched by the single in-flight delivery
+    private long lastDeliveryNanos;
+
+    ProgressDispatcher(OnProgressListener progressListener, OnStreamStatsListener statsListener,
+                       long minIntervalMillis) {
+        this.progressListener = progressListener;
+        this.statsListener = statsListener;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minIntervalMillis));
+        this.lastDeliveryNanos = System.nanoTime() - minIntervalNanos;
+    }
+
+    boolean hasListeners() {
+        return progressListener != null || statsListener != null;
+    }
+
+    boolean hasProgressListener() {
+        return progressListener != null;
+    }
+
+    /**
+     * Sets the expected output duration once it is known (0 if unknown).
+     */
+    void setTotalUs(long totalUs) {
+        this.totalUs = totalUs;
+    }
+
+    synchronized ProgressInfo snapshot() {
+        return toProgressInfo(outTimeUs, frame, bitrateKbps, speed);
+    }
+
+    synchronized long totalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Records a new snapshot. Counters that FFmpeg reports cumulatively never move backwards,
+     * so listeners always observe monotonic values.
+     */
+    void publish(long outTimeUs, long totalSize, long frame, double bitrateKbps, double speed,
+                 long droppedFrames, long duplicatedFrames) {
+        boolean startDelivery;
+        synchronized (this) {
+            this.outTimeUs = Math.max(this.outTimeUs, outTimeUs);
+            this.totalSize = Math.max(this.totalSize, totalSize);
+            this.frame = Math.max(this.frame, frame);
+            this.droppedFrames = Math.max(this.droppedFrames, droppedFrames);
+            this.duplicatedFrames = Math.max(this.duplicatedFrames, duplicatedFrames);
+            this.bitrateKbps = bitrateKbps;
+            this.speed = speed;
+            if (!hasListeners()) return;
+            dirty = true;
+            startDelivery = !inFlight;
+            inFlight = true;
+        }
+        if (startDelivery) {
+            Thread.ofVirtual().name("ffmpeg-progress-dispatch").start(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            long waitNanos = lastDeliveryNanos + minIntervalNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            long outTime;
+            long currentFrame;
+            double bitrate;
+            double currentSpeed;
+            long dropped;
+            long duplicated;
+            synchronized (this) {
+                if (!dirty) {
+                    inFlight = false;
+                    return;
+                }
+                outTime = outTimeUs;
+                currentFrame = frame;
+                bitrate = bitrateKbps;
+                currentSpeed = speed;
+                dropped = droppedFrames;
+                duplicated = duplicatedFrames;
+                dirty = false;
+            }
+
+            lastDeliveryNanos = System.nanoTime();
+            deliver(outTime, currentFrame, bitrate, currentSpeed, dropped, duplicated);
+        }
+    }
+
+    private void deliver(long outTime, long frame, double bitrateKbps, double speed, long dropped, long duplicated) {
+        try {
+            if (progressListener != null) {
+                progressListener.onProgress(toProgressInfo(outTime, frame, bitrateKbps, speed));
+            }
+            if (statsListener != null) {
+                statsListener.onStatsUpdate((long) (bitrateKbps * 1000), speed, (int) dropped, (int) duplicated);
+            }
+        } catch (Exception ignored) {
+            // A failing listener must not stop later updates
+        }
+    }
+
+    private ProgressInfo toProgressInfo(long outTimeUs, long frame, double bitrateKbps, double speed) {
+        long totalUs = this.totalUs;
+        long processedUs = Math.max(0, outTimeUs);
+        double percentage = 0;
+        long etaMillis = -1;
+        if (totalUs > 0) {
+            percentage = Math.min(100.0, processedUs * 100.0 / totalUs);
+            if (speed > 0) {
+                etaMillis = (long) (Math.max(0, totalUs - processedUs) / speed / 1000);
+            }
+        }
+        return new ProgressInfo(percentage, processedUs / 1000, totalUs / 1000, frame, bitrateKbps, speed, etaMillis);
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for FFmpeg's machine-readable {@code -progress} output.
+ * FFmpeg writes blocks of {@code key=value} lines terminated by {@code progress=continue}
+ * or {@code progress=end}. Lines are scanned directly from a reusable byte buffer and only
+ * the keys we report on are decoded, so steady-state parsing allocates nothing.
+ */
+final class ProgressParser {
+
+    /**
+     * Receives the parser itself after every complete block; read its fields to consume it.
+     */
+    @FunctionalInterface
+    interface BlockListener {
+        void onBlock(ProgressParser progress, boolean end);
+    }
+
+    private static final byte[] OUT_TIME_US = ascii("out_time_us");
+    private static final byte[] TOTAL_SIZE = ascii("total_size");
+    private static final byte[] SPEED = ascii("speed");
+    private static final byte[] BITRATE = ascii("bitrate");
+    private static final byte[] FRAME = ascii("frame");
+    private static final byte[] DROP_FRAMES = ascii("drop_frames");
+    private static final byte[] DUP_FRAMES = ascii("dup_frames");
+    private static final byte[] PROGRESS = ascii("progress");
+    private static final byte[] END = ascii("end");
+
+    private final byte[] buffer = new byte[8192];
+
+    /** Output timestamp in microseconds, or -1 if FFmpeg has not reported one yet. */
+    long outTimeUs = -1;
+    /** Bytes written to the output so far, or -1 if unknown. */
+    long totalSize = -1;
+    long frame;
+    long dropFrames;
+    long dupFrames;
+    /** Processing speed relative to real time, or 0 if unknown. */
+    double speed;
+    /** Output bitrate in kbit/s, or 0 if unknown. */
+    double bitrateKbps;
+
+    /**
+     * Reads the stream until EOF, notifying the listener after each block.
+     */
+    void consume(InputStream in, BlockListener listener) throws IOException {
+        int start = 0;
+        int end = 0;
+        int read;
+        while ((read = in.read(buffer, end, buffer.length - end)) != -1) {
+            end += read;
+            int lineStart = 0;
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    parseLine(lineStart, i, listener);
+                    lineStart = i + 1;
+                }
+            }
+            // Compact the unterminated tail to the front of the buffer.
+            int remaining = end - lineStart;
+            if (remaining == buffer.length) {
+                remaining = 0; // a single line larger than the buffer is not progress output
+            } else if (remaining > 0 && lineStart > 0) {
+                System.arraycopy(buffer, lineStart, buffer, 0, remaining);
+            }
+            start = remaining;
+            end = remaining;
+        }
+    }
+
+    private void parseLine(int from, int to, BlockListener listener) {
+        if (to > from && buffer[to - 1] == '\r') to--;
+        int eq = -1;
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '=') {
+                eq = i;
+                break;
+            }
+        }
+        if (eq <= from) return;
+
+        int valueFrom = eq + 1;
+        while (valueFrom < to && buffer[valueFrom] == ' ') valueFrom++;
+
+        if (keyEquals(from, eq, OUT_TIME_US)) {
+            outTimeUs = parseLong(valueFrom, to, outTimeUs);
+        } else if (keyEquals(from, eq, TOTAL_SIZE)) {
+            totalSize = parseLong(valueFrom, to, totalSize);
+        } else if (keyEquals(from, eq, SPEED)) {
+            speed = parseDouble(valueFrom, to, speed);
+        } else if (keyEquals(from, eq, BITRATE)) {
+            bitrateKbps = parseDouble(valueFrom, to, bitrateKbps);
+        } else if (keyEquals(from, eq, FRAME)) {
+            frame = parseLong(valueFrom, to, frame);
+        } else if (keyEquals(from, eq, DROP_FRAMES)) {
+            dropFrames = parseLong(valueFrom, to, dropFrames);
+        } else if (keyEquals(from, eq, DUP_FRAMES)) {
+            dupFrames = parseLong(valueFrom, to, dupFrames);
+        } else if (keyEquals(from, eq, PROGRESS)) {
+            listener.onBlock(this, keyEquals(valueFrom, to, END));
+        }
+    }
+
+    private boolean keyEquals(int from, int to, byte[] key) {
+        if (to - from != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer[from + i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    /** Parses a leading (optionally negative) integer; returns the fallback for values like N/A. */
+    private long parseLong(int from, int to, long fallback) {
+        boolean negative = from < to && buffer[from] == '-';
+        int i = negative ? from + 1 : from;
+        if (i >= to || buffer[i] < '0' || buffer[i] > '9') return fallback;
+        long value = 0;
+        for (; i < to && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+            value = value * 10 + (buffer[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /** Parses a leading decimal such as {@code 1.25x} or {@code 128.0kbits/s}. */
+    private double parseDouble(int from, int to, double fallback) {
+        int i = from;
+        if (i >= to || buffer[i] < '0' || buffer[i] > '9') return fallback;
+        long whole = 0;
+        for (; i < to && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+            whole = whole * 10 + (buffer[i] - '0');
+        }
+        if (i >= to || buffer[i] != '.') return whole;
+        long fraction = 0;
+        long scale = 1;
+        for (i++; i < to && buffer[i] >= '0' && buffer[i] <= '9' && scale < 1_000_000_000L; i++) {
+            fraction = fraction * 10 + (buffer[i] - '0');
+            scale *= 10;
+        }
+        return whole + (double) fraction / scale;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
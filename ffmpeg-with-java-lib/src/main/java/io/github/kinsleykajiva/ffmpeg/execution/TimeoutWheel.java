@@ -0,0 +1,128 @@
+package io.github.kinsleykajiva.ffmpeg.execution;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed-wheel timer shared by all job timeouts.
+ * One daemon thread advances the wheel every tick and fires the deadlines that fall in the
+ * current bucket, so thousands of pending timeouts cost one thread and O(1) scheduling.
+ * Deadlines are accurate to within one tick, which is plenty for process timeouts.
+ * {@link #SHARED} is also used by the probers for their ffprobe deadlines.
+ */
+public final class TimeoutWheel {
+
+    public static final TimeoutWheel SHARED = new TimeoutWheel(100, TimeUnit.MILLISECONDS, 512);
+
+    /**
+     * A scheduled deadline that can be cancelled before it fires.
+     */
+    public static final class Timeout {
+        // Cleared on cancel so a cancelled entry waiting for its bucket no longer pins what the task captured.
+        private volatile Runnable task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private Timeout next;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            task = null;
+        }
+    }
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private volatile long startNanos;
+    private Thread worker;
+
+    TimeoutWheel(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two. Provided: " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+    }
+
+    /**
+     * Runs {@code task} on the wheel thread once the delay has elapsed, unless cancelled first.
+     * The task must be short and non-blocking.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        ensureStarted();
+        Timeout timeout = new Timeout(task, System.nanoTime() - startNanos + unit.toNanos(delay));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private synchronized void ensureStarted() {
+        if (worker != null) return;
+        startNanos = System.nanoTime();
+        worker = Thread.ofPlatform().daemon().name("ffmpeg-timeout-wheel").start(this::run);
+    }
+
+    private void run() {
+        long tick = 0;
+        while (true) {
+            long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            while (sleepNanos > 0) {
+                LockSupport.parkNanos(sleepNanos);
+                sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            }
+            transferPending(tick);
+            expire((int) (tick & mask));
+            tick++;
+        }
+    }
+
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) continue;
+            long calculated = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = Math.max(0, (calculated - tick) / buckets.length);
+            // Deadlines already in the past go into the current bucket and fire this tick.
+            int index = (int) (Math.max(calculated, tick) & mask);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    private void expire(int index) {
+        Timeout previous = null;
+        Timeout current = buckets[index];
+        while (current != null) {
+            Timeout next = current.next;
+            Runnable task = current.task;
+            boolean remove = current.cancelled || task == null;
+            if (!remove && current.remainingRounds <= 0) {
+                remove = true;
+                try {
+                    task.run();
+                } catch (Throwable ignored) {
+                    // A failing task must not stop the wheel
+                }
+            } else if (!remove) {
+                current.remainingRounds--;
+            }
+
+            if (remove) {
+                if (previous == null) buckets[index] = next; else previous.next = next;
+                current.next = null;
+            } else {
+                previous = current;
+            }
+            current = next;
+        }
+    }
+}
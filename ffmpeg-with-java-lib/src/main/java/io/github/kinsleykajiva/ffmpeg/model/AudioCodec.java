@@ -1,26 +1,38 @@
 package io.github.kinsleykajiva.ffmpeg.model;
 
+import java.util.List;
+
 /**
  * Standardized audio codecs for FFmpeg.
  */
 public enum AudioCodec {
-    LIBMP3LAME("libmp3lame"),
-    LIBOPUS("libopus"),
-    AAC("aac"),
-    FLAC("flAC"),
+    LIBMP3LAME("libmp3lame", "libshine"),
+    LIBOPUS("libopus", "opus"),
+    AAC("aac", "libfdk_aac"),
+    FLAC("flac"),
     PCM_S16LE("pcm_s16le"),
     PCM_U8("pcm_u8");
 
     private final String codecName;
+    private final List<String> alternatives;
 
-    AudioCodec(String codecName) {
+    AudioCodec(String codecName, String... alternatives) {
         this.codecName = codecName;
+        this.alternatives = List.of(alternatives);
     }
 
     public String getCodecName() {
         return codecName;
     }
 
+    /**
+     * Other encoders producing the same format, in order of preference, used when this one is
+     * missing from the FFmpeg build.
+     */
+    public List<String> getAlternatives() {
+        return alternatives;
+    }
+
     @Override
     public String toString() {
         return codecName;
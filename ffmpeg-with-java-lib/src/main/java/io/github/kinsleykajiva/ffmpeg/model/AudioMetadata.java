@@ -1,10 +1,13 @@
 package io.github.kinsleykajiva.ffmpeg.model;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Immutable record representing audio stream metadata.
+ * {@code chapters} and {@code audioPacketCount} are only filled in when the probe was asked for
+ * {@link ProbeOptions.Section#CHAPTERS} or {@link ProbeOptions.Section#PACKETS_SUMMARY}.
  */
 public record AudioMetadata(
     String format,
@@ -12,10 +15,18 @@ public record AudioMetadata(
     long bitrate,
     int sampleRate,
     String channelLayout,
-    Map<String, String> tags
+    Map<String, String> tags,
+    List<Chapter> chapters,
+    long audioPacketCount
 ) {
     public AudioMetadata {
         tags = Collections.unmodifiableMap(tags);
+        chapters = (chapters == null) ? List.of() : List.copyOf(chapters);
+    }
+
+    public AudioMetadata(String format, double durationSeconds, long bitrate, int sampleRate,
+                         String channelLayout, Map<String, String> tags) {
+        this(format, durationSeconds, bitrate, sampleRate, channelLayout, tags, List.of(), 0);
     }
 
     public long durationMillis() {
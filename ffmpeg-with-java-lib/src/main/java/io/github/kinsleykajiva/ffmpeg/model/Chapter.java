@@ -0,0 +1,11 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+/**
+ * A chapter marker read from the container.
+ *
+ * @param id container-specific chapter id
+ * @param startSeconds chapter start time
+ * @param endSeconds chapter end time
+ * @param title the chapter's title tag, or null if it has none
+ */
+public record Chapter(long id, double startSeconds, double endSeconds, String title) {}
@@ -0,0 +1,35 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+import java.util.List;
+
+/**
+ * What an audio encoder accepts. An empty list means the encoder accepts any value, or that the
+ * capability is unknown because the registry was built from {@code ffmpeg -encoders}.
+ *
+ * @param name encoder name as passed to {@code -c:a}
+ * @param sampleFormats sample formats the encoder takes
+ * @param sampleRates sample rates the encoder takes, in Hz
+ * @param channelCounts channel counts of the layouts the encoder takes
+ * @param experimental whether ffmpeg only uses the encoder with {@code -strict experimental}
+ */
+public record EncoderInfo(String name, List<SampleFormat> sampleFormats, List<Integer> sampleRates,
+                          List<Integer> channelCounts, boolean experimental) {
+    public EncoderInfo {
+        sampleFormats = List.copyOf(sampleFormats);
+        sampleRates = List.copyOf(sampleRates);
+        channelCounts = List.copyOf(channelCounts);
+    }
+
+    /** An encoder known only by name. */
+    public static EncoderInfo named(String name) {
+        return new EncoderInfo(name, List.of(), List.of(), List.of(), false);
+    }
+
+    public boolean supportsSampleRate(int rate) {
+        return sampleRates.isEmpty() || sampleRates.contains(rate);
+    }
+
+    public boolean supportsChannels(int channels) {
+        return channelCounts.isEmpty() || channelCounts.contains(channels);
+    }
+}
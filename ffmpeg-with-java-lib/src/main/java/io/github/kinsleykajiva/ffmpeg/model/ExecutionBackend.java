@@ -0,0 +1,15 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+/**
+ * Where an audio job runs.
+ */
+public enum ExecutionBackend {
+    /** Spawn an {@code ffmpeg} process (the default; supports every option). */
+    PROCESS,
+    /**
+     * Decode, encode and mux inside the JVM through the native libraries, avoiding process
+     * startup and pipe overhead. Jobs the in-process pipeline cannot express (filters, network
+     * destinations, live sources) run as a process instead.
+     */
+    IN_PROCESS
+}
@@ -0,0 +1,27 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+/**
+ * Still image formats that extracted frames can be written as.
+ */
+public enum ImageFormat {
+    JPEG("jpeg", "jpg"),
+    PNG("png", "png");
+
+    private final String formatName;
+    private final String extension;
+
+    ImageFormat(String formatName, String extension) {
+        this.formatName = formatName;
+        this.extension = extension;
+    }
+
+    /** The ImageIO writer name. */
+    public String getFormatName() {
+        return formatName;
+    }
+
+    /** File extension without the dot. */
+    public String getExtension() {
+        return extension;
+    }
+}
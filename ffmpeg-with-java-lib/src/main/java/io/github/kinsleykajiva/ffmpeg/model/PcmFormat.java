@@ -0,0 +1,38 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+/**
+ * Target layout for decoded PCM.
+ *
+ * @param sampleFormat sample type and packing
+ * @param sampleRate output sample rate in Hz (0 keeps the source rate)
+ * @param channels output channel count (0 keeps the source channels)
+ */
+public record PcmFormat(SampleFormat sampleFormat, int sampleRate, int channels) {
+    public PcmFormat {
+        if (sampleFormat == null) {
+            throw new IllegalArgumentException("Sample format cannot be null.");
+        }
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("Sample rate cannot be negative. Provided: " + sampleRate);
+        }
+        if (channels < 0) {
+            throw new IllegalArgumentException("Channel count cannot be negative. Provided: " + channels);
+        }
+    }
+
+    public static PcmFormat of(SampleFormat sampleFormat, SampleRate sampleRate, ChannelLayout layout) {
+        return new PcmFormat(sampleFormat, sampleRate.getRate(), Integer.parseInt(layout.getChannels()));
+    }
+
+    /**
+     * Keeps the source rate and channels, converting only the sample format.
+     */
+    public static PcmFormat of(SampleFormat sampleFormat) {
+        return new PcmFormat(sampleFormat, 0, 0);
+    }
+
+    /** Bytes per sample frame (all channels) in a packed buffer. */
+    public int frameBytes() {
+        return sampleFormat.getBytesPerSample() * channels;
+    }
+}
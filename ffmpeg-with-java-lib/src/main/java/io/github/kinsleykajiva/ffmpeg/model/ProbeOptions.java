@@ -0,0 +1,122 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Settings for probing files: which parts of the container to read and, for
+ * {@code FFmpeg.probeAll}, how many files to probe at once.
+ *
+ * @param concurrency maximum number of files probed at the same time (at least 1)
+ * @param maxDepth how many directory levels below the root to descend into
+ * @param fileFilter selects which regular files are probed (null probes every file)
+ * @param bufferedResults completed results that may wait for the consumer before probing pauses
+ * @param sections what to read; fields outside the requested sections may be left at their defaults
+ */
+public record ProbeOptions(
+    int concurrency,
+    int maxDepth,
+    Predicate<Path> fileFilter,
+    int bufferedResults,
+    Set<ProbeOptions.Section> sections
+) {
+    /**
+     * Parts of the container a probe reads. The format name, duration and bitrate are always read;
+     * {@link #FORMAT_ONLY} on its own asks for nothing more.
+     */
+    public enum Section {
+        /** Container-level fields only: format name, duration and bitrate. */
+        FORMAT_ONLY,
+        /** Sample rate and channel layout of the first audio stream. */
+        AUDIO_STREAM,
+        /** Container tags. */
+        TAGS,
+        /** Chapter markers. */
+        CHAPTERS,
+        /** Number of packets in the first audio stream; requires reading the whole file. */
+        PACKETS_SUMMARY
+    }
+
+    private static final Set<Section> DEFAULT_SECTIONS = EnumSet.of(Section.AUDIO_STREAM, Section.TAGS);
+
+    public ProbeOptions {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1. Provided: " + concurrency);
+        }
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Max depth cannot be negative. Provided: " + maxDepth);
+        }
+        if (bufferedResults < 1) {
+            throw new IllegalArgumentException("Result buffer must be at least 1. Provided: " + bufferedResults);
+        }
+        if (sections == null || sections.isEmpty()) {
+            throw new IllegalArgumentException("At least one probe section is required.");
+        }
+        sections = Set.copyOf(sections);
+    }
+
+    /**
+     * Two probes per core, unlimited depth, every file, room for 256 unconsumed results, and the
+     * format plus the first audio stream and tags.
+     */
+    public static ProbeOptions defaults() {
+        return new ProbeOptions(Runtime.getRuntime().availableProcessors() * 2, Integer.MAX_VALUE, null, 256,
+            DEFAULT_SECTIONS);
+    }
+
+    /**
+     * Default options reading only the given sections.
+     */
+    public static ProbeOptions of(Section first, Section... rest) {
+        return defaults().withSections(EnumSet.of(first, rest));
+    }
+
+    public boolean includes(Section section) {
+        return sections.contains(section);
+    }
+
+    /**
+     * True if a default probe reads everything these options ask for, so its result can stand in.
+     */
+    public boolean coveredByDefaults() {
+        for (Section section : sections) {
+            if (section != Section.FORMAT_ONLY && !DEFAULT_SECTIONS.contains(section)) return false;
+        }
+        return true;
+    }
+
+    public ProbeOptions withSections(Set<Section> sections) {
+        return new ProbeOptions(concurrency, maxDepth, fileFilter, bufferedResults, sections);
+    }
+
+    public ProbeOptions withConcurrency(int concurrency) {
+        return new ProbeOptions(concurrency, maxDepth, fileFilter, bufferedResults, sections);
+    }
+
+    public ProbeOptions withMaxDepth(int maxDepth) {
+        return new ProbeOptions(concurrency, maxDepth, fileFilter, bufferedResults, sections);
+    }
+
+    public ProbeOptions withFileFilter(Predicate<Path> fileFilter) {
+        return new ProbeOptions(concurrency, maxDepth, fileFilter, bufferedResults, sections);
+    }
+
+    /**
+     * Only probes files whose name ends with one of the extensions (case-insensitive, without the dot).
+     */
+    public ProbeOptions withExtensions(String... extensions) {
+        return withFileFilter(path -> {
+            String name = path.getFileName().toString().toLowerCase(java.util.Locale.ROOT);
+            for (String extension : extensions) {
+                if (name.endsWith("." + extension.toLowerCase(java.util.Locale.ROOT))) return true;
+            }
+            return false;
+        });
+    }
+
+    public ProbeOptions withBufferedResults(int bufferedResults) {
+        return new ProbeOptions(concurrency, maxDepth, fileFilter, bufferedResults, sections);
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+import io.github.kinsleykajiva.ffmpeg.exception.FFmpegException;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of probing one file in a batch. Exactly one of {@code metadata} and {@code error} is set.
+ *
+ * @param path the probed file (or the directory that could not be read)
+ * @param metadata the probe result, or null if probing failed
+ * @param error why probing failed, or null on success
+ * @param elapsedMillis time spent probing this file
+ */
+public record ProbeResult(
+    Path path,
+    AudioMetadata metadata,
+    FFmpegException error,
+    long elapsedMillis
+) {
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
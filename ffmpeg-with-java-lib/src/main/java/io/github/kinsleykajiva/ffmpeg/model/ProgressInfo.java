@@ -0,0 +1,26 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+/**
+ * Immutable snapshot of a running job's progress.
+ *
+ * @param percentage completion percentage (0.0 to 100.0), or 0 if the duration is unknown
+ * @param processedMillis output time encoded so far
+ * @param totalMillis expected output duration, or 0 if unknown
+ * @param frame current frame number (0 for audio-only jobs)
+ * @param bitrateKbps current output bitrate in kbit/s
+ * @param speed processing speed (1.0 is real-time)
+ * @param etaMillis estimated wall-clock time remaining, or -1 if it cannot be estimated yet
+ */
+public record ProgressInfo(
+    double percentage,
+    long processedMillis,
+    long totalMillis,
+    long frame,
+    double bitrateKbps,
+    double speed,
+    long etaMillis
+) {
+    public boolean hasEta() {
+        return etaMillis >= 0;
+    }
+}
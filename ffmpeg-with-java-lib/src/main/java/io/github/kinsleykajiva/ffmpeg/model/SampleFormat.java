@@ -0,0 +1,47 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+/**
+ * PCM sample formats, named as FFmpeg names them. Planar formats keep each channel in its own
+ * buffer; packed formats interleave the channels in one buffer.
+ */
+public enum SampleFormat {
+    U8("u8", 1, false),
+    S16("s16", 2, false),
+    S32("s32", 4, false),
+    S64("s64", 8, false),
+    FLT("flt", 4, false),
+    DBL("dbl", 8, false),
+    U8P("u8p", 1, true),
+    S16P("s16p", 2, true),
+    S32P("s32p", 4, true),
+    S64P("s64p", 8, true),
+    FLTP("fltp", 4, true),
+    DBLP("dblp", 8, true);
+
+    private final String ffmpegName;
+    private final int bytesPerSample;
+    private final boolean planar;
+
+    SampleFormat(String ffmpegName, int bytesPerSample, boolean planar) {
+        this.ffmpegName = ffmpegName;
+        this.bytesPerSample = bytesPerSample;
+        this.planar = planar;
+    }
+
+    public String getFfmpegName() {
+        return ffmpegName;
+    }
+
+    public int getBytesPerSample() {
+        return bytesPerSample;
+    }
+
+    public boolean isPlanar() {
+        return planar;
+    }
+
+    @Override
+    public String toString() {
+        return ffmpegName;
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+/**
+ * Immutable snapshot of a job scheduler's admission counters.
+ *
+ * @param maxConcurrent maximum number of jobs allowed to run at once
+ * @param running jobs currently running
+ * @param queued jobs waiting for admission
+ * @param completed jobs that have finished (successfully or not)
+ * @param rejected jobs refused because the queue was full
+ * @param averageWaitMillis mean time admitted jobs spent in the queue
+ * @param maxWaitMillis longest time any admitted job spent in the queue
+ */
+public record SchedulerStats(
+    int maxConcurrent,
+    int running,
+    int queued,
+    long completed,
+    long rejected,
+    double averageWaitMillis,
+    long maxWaitMillis
+) {
+    /**
+     * Fraction of the concurrency budget in use (0.0 to 1.0).
+     */
+    public double utilization() {
+        return maxConcurrent == 0 ? 0 : (double) running / maxConcurrent;
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+import java.nio.file.Path;
+
+/**
+ * A still image written from a video frame.
+ *
+ * @param path the image file
+ * @param timestampSeconds presentation time of the frame in the source
+ * @param width image width in pixels
+ * @param height image height in pixels
+ */
+public record Thumbnail(Path path, double timestampSeconds, int width, int height) {}
@@ -0,0 +1,84 @@
+package io.github.kinsleykajiva.ffmpeg.model;
+
+import java.util.Map;
+
+/**
+ * A file-to-file audio transcode for the in-process pipeline.
+ *
+ * @param inputPath the file to decode
+ * @param outputPath the file to write, whose extension selects the container unless
+ *        {@code outputFormat} is set; may be null when writing to a sink
+ * @param codecName encoder name (e.g. {@code libmp3lame}), or null for the container's default audio codec
+ * @param bitrate target bitrate in bits per second (0 leaves it to the encoder)
+ * @param sampleRate output sample rate in Hz (0 keeps the source rate)
+ * @param channels output channel count (0 keeps the source channels)
+ * @param metadata container metadata tags, applied over the tags copied from the input
+ * @param outputFormat muxer short name (e.g. {@code mp3}, {@code adts}, {@code ogg}), or null to
+ *        pick it from the output path's extension
+ * @param experimental whether the encoder is experimental and must be opened with
+ *        {@code strict_std_compliance} lowered, as {@code -strict experimental} does (see
+ *        {@link EncoderInfo#experimental()})
+ */
+public record TranscodeSpec(
+    String inputPath,
+    String outputPath,
+    String codecName,
+    long bitrate,
+    int sampleRate,
+    int channels,
+    Map<String, String> metadata,
+    String outputFormat,
+    boolean experimental
+) {
+    public TranscodeSpec {
+        if (inputPath == null) {
+            throw new IllegalArgumentException("Input path cannot be null.");
+        }
+        if (outputPath == null && outputFormat == null) {
+            throw new IllegalArgumentException("Either an output path or an output format is required.");
+        }
+        if (bitrate < 0 || sampleRate < 0 || channels < 0) {
+            throw new IllegalArgumentException("Bitrate, sample rate and channels cannot be negative.");
+        }
+        metadata = (metadata == null) ? Map.of() : Map.copyOf(metadata);
+    }
+
+    /**
+     * A transcode with a non-experimental (or the container's default) encoder.
+     */
+    public TranscodeSpec(String inputPath, String outputPath, String codecName, long bitrate,
+                         int sampleRate, int channels, Map<String, String> metadata, String outputFormat) {
+        this(inputPath, outputPath, codecName, bitrate, sampleRate, channels, metadata, outputFormat, false);
+    }
+
+    /**
+     * A file-to-file transcode whose container is chosen by the output path's extension.
+     */
+    public TranscodeSpec(String inputPath, String outputPath, String codecName, long bitrate,
+                         int sampleRate, int channels, Map<String, String> metadata) {
+        this(inputPath, outputPath, codecName, bitrate, sampleRate, channels, metadata, null);
+    }
+
+    /**
+     * A transcode for a {@link io.github.kinsleykajiva.ffmpeg.JavaAvioSink}, which has no path
+     * to take the container from.
+     */
+    public static TranscodeSpec toFormat(String inputPath, String outputFormat, String codecName, long bitrate) {
+        return new TranscodeSpec(inputPath, null, codecName, bitrate, 0, 0, Map.of(), outputFormat);
+    }
+
+    /**
+     * Parses an FFmpeg-style bitrate such as {@code 128k} or {@code 1M} into bits per second.
+     */
+    public static long parseBitrate(String bitrate) {
+        if (bitrate == null) return 0;
+        String value = bitrate.trim();
+        if (!value.matches("(?i)\\d+[kM]?")) {
+            throw new IllegalArgumentException("Invalid bitrate format: " + bitrate + ". Expected format like '128k' or '1M'.");
+        }
+        char suffix = Character.toLowerCase(value.charAt(value.length() - 1));
+        if (suffix == 'k') return Long.parseLong(value.substring(0, value.length() - 1)) * 1_000;
+        if (suffix == 'm') return Long.parseLong(value.substring(0, value.length() - 1)) * 1_000_000;
+        return Long.parseLong(value);
+    }
+}